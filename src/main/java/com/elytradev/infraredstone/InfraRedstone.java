@@ -4,8 +4,17 @@ import com.elytradev.infraredstone.Container.OscillatorContainer;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
 import com.elytradev.infraredstone.item.ModItems;
+import com.elytradev.infraredstone.logic.IRBlockRole;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IREngine;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import com.elytradev.infraredstone.logic.network.WireSync;
+import com.elytradev.infraredstone.util.ChunkWatchers;
 import com.elytradev.infraredstone.util.CommonProxy;
+import com.elytradev.infraredstone.util.ConnectionUpdateQueue;
+import com.elytradev.infraredstone.util.InfraRedstoneConfig;
+import com.elytradev.infraredstone.util.ModuleSyncQueue;
+import com.elytradev.infraredstone.util.PerWorld;
 import io.netty.buffer.Unpooled;
 import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.api.EnvType;
@@ -51,9 +60,18 @@ public class InfraRedstone implements ModInitializer {
 
 	@Override
 	public void onInitialize() {
+		InfraRedstoneConfig.load();
 		ModBlocks.init();
 		ModItems.init();
+		IRBlockRole.rebuild();
+		TickEvent.SERVER.register(PerWorld.onServerTick);
 		TickEvent.SERVER.register(InRedLogic.onServerTick);
+		TickEvent.SERVER.register(IREngine.onServerTick);
+		TickEvent.SERVER.register(WireNetworkRegistry.onServerTick);
+		TickEvent.SERVER.register(ConnectionUpdateQueue.onServerTick);
+		TickEvent.SERVER.register(ChunkWatchers.onServerTick);
+		TickEvent.SERVER.register(ModuleSyncQueue.onServerTick);
+		TickEvent.SERVER.register(WireSync.onServerTick);
 		//Registers a container factory that opens our example Container, this reads the block pos from the buffer
 		ContainerProviderRegistry.INSTANCE.registerFactory(OSCILLATOR_CONTAINER, (identifier, player, buf) -> {
 			BlockPos pos = buf.readBlockPos();
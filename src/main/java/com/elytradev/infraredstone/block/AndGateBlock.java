@@ -134,6 +134,7 @@ public class AndGateBlock extends ModuleBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		wakeModule(world, pos, block);
 		if (!this.canBlockStay(world, pos)) {
 			world.breakBlock(pos, true);
 
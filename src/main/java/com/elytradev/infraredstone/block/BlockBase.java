@@ -2,6 +2,8 @@ package com.elytradev.infraredstone.block;
 
 import com.elytradev.infraredstone.api.InfraRedstoneCapable;
 import com.elytradev.infraredstone.api.SimpleInfraRedstoneSignal;
+import com.elytradev.infraredstone.logic.IRBlockRole;
+import com.elytradev.infraredstone.util.BulkCableEdit;
 import com.elytradev.infraredstone.util.C28n;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -24,6 +26,8 @@ public class BlockBase extends Block implements NamedBlock {
 
 	public String name;
 
+	private static final Direction[] PLANAR_FACINGS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
 	public BlockBase(String name, Settings settings) {
 		super(settings);
 		this.name = name;
@@ -41,13 +45,12 @@ public class BlockBase extends Block implements NamedBlock {
 
 	/** Ask the *destination block* if it can be connected to. {@code from} side has the same semantics as Capability sides */
 	public static boolean canConnect(BlockView world, BlockPos pos, Direction from) {
-		if (world.getBlockState(pos).isAir()) return false;
-
 		BlockState state = world.getBlockState(pos);
-		Block block = state.getBlock();
-		if (block==ModBlocks.INFRA_REDSTONE || block==ModBlocks.IN_RED_SCAFFOLD) return true;
-		if (block instanceof SimpleInfraRedstoneSignal) {
-			return ((SimpleInfraRedstoneSignal)block).canConnectIR(world, pos, state, from);
+		IRBlockRole role = IRBlockRole.of(state);
+		if (role == IRBlockRole.NONE) return false;
+		if (role.isWire()) return true;
+		if (role == IRBlockRole.SIMPLE_SIGNAL) {
+			return ((SimpleInfraRedstoneSignal)state.getBlock()).canConnectIR(world, pos, state, from);
 		}
 		BlockEntity be = world.getBlockEntity(pos);
 		if (!(be instanceof InfraRedstoneCapable)) return false;
@@ -55,6 +58,38 @@ public class BlockBase extends Block implements NamedBlock {
 		return ((InfraRedstoneCapable)be).canConnectToSide(from);
 	}
 
+	/**
+	 * @return {@code state} with its connections to the blocks around {@code pos} worked out again. Blocks that don't
+	 * connect to anything return it as-is.
+	 */
+	public BlockState getConnectedState(World world, BlockPos pos, BlockState state) {
+		return state;
+	}
+
+	/**
+	 * @return true if a {@link BulkCableEdit} is holding back updates at {@code pos}, in which case it's been told to
+	 * resolve this position when it closes, and the caller should skip its own update.
+	 */
+	protected static boolean deferToBulkEdit(World world, BlockPos pos) {
+		BulkCableEdit edit = BulkCableEdit.getSuspending(world, pos);
+		if (edit == null) return false;
+		edit.defer(pos);
+		return true;
+	}
+
+	/**
+	 * Tells every block whose connections might depend on {@code pos} that it changed: its neighbors, and the cables
+	 * diagonally above and below it, which climb onto it. Nothing further out can connect to it.
+	 */
+	public static void updateConnectingNeighbors(World world, BlockPos pos, Block block) {
+		world.updateNeighborsAlways(pos, block);
+		for (Direction dir : PLANAR_FACINGS) {
+			BlockPos side = pos.offset(dir);
+			if (world.getBlockState(side.up()).getBlock() == ModBlocks.INFRA_REDSTONE) world.updateNeighbor(side.up(), block, pos);
+			if (world.getBlockState(side.down()).getBlock() == ModBlocks.INFRA_REDSTONE) world.updateNeighbor(side.down(), block, pos);
+		}
+	}
+
 //	@Override
 //	public void addInformation(ItemStack itemStack, BlockView blockView, List<TextComponent> tooltip, TooltipOptions tooltipOptions) {
 //		if (Gui.isShiftPressed()) {
@@ -84,6 +84,7 @@ public class EncoderBlock extends ModuleBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		wakeModule(world, pos, block);
 		if (!this.canBlockStay(world, pos)) {
 			world.breakBlock(pos, true);
 
@@ -3,6 +3,9 @@ package com.elytradev.infraredstone.block;
 import com.elytradev.infraredstone.api.SimpleInfraRedstoneSignal;
 import com.elytradev.infraredstone.api.InfraRedstoneCapable;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import com.elytradev.infraredstone.util.BulkCableEdit;
+import com.elytradev.infraredstone.util.ConnectionUpdateQueue;
 import com.elytradev.infraredstone.util.enums.CableConnection;
 import net.fabricmc.fabric.block.FabricBlockSettings;
 import net.minecraft.block.Block;
@@ -57,32 +60,74 @@ public class InfraRedstoneCable extends BlockBase {
 		return VoxelShapes.empty();
 	}
 
-	private VoxelShape NO_SIDE = Block.createCubeShape(6d, 0d, 6d, 10d, 3d, 10d);
-	private VoxelShape NORTH_SIDE = Block.createCubeShape(6d, 0d, 0d, 10d, 3d, 6d);
-	private VoxelShape NORTH_UP = Block.createCubeShape(6d, 3d, 0d, 10d, 19d, 3d);
-	private VoxelShape NORTH_SIDE_UP = VoxelShapes.union(NORTH_SIDE, NORTH_UP);
-	private VoxelShape SOUTH_SIDE = Block.createCubeShape(6d, 0d, 10d, 10d, 3d, 16d);
-	private VoxelShape SOUTH_UP = Block.createCubeShape(6d, 3d, 13d, 10d, 19d, 16d);
-	private VoxelShape SOUTH_SIDE_UP = VoxelShapes.union(SOUTH_SIDE, SOUTH_UP);
-	private VoxelShape EAST_SIDE = Block.createCubeShape(10d, 0d, 6d, 16d, 3d, 10d);
-	private VoxelShape EAST_UP = Block.createCubeShape(13d, 3d, 6d, 16d, 19d, 10d);
-	private VoxelShape EAST_SIDE_UP = VoxelShapes.union(EAST_SIDE, EAST_UP);
-	private VoxelShape WEST_SIDE = Block.createCubeShape(0d, 0d, 6d, 6d, 3d, 10d);
-	private VoxelShape WEST_UP = Block.createCubeShape(0d, 3d, 6d, 3d, 19d, 10d);
-	private VoxelShape WEST_SIDE_UP = VoxelShapes.union(WEST_SIDE, WEST_UP);
+	private static final VoxelShape NO_SIDE = Block.createCubeShape(6d, 0d, 6d, 10d, 3d, 10d);
+	private static final VoxelShape NORTH_SIDE = Block.createCubeShape(6d, 0d, 0d, 10d, 3d, 6d);
+	private static final VoxelShape NORTH_UP = Block.createCubeShape(6d, 3d, 0d, 10d, 19d, 3d);
+	private static final VoxelShape NORTH_SIDE_UP = VoxelShapes.union(NORTH_SIDE, NORTH_UP);
+	private static final VoxelShape SOUTH_SIDE = Block.createCubeShape(6d, 0d, 10d, 10d, 3d, 16d);
+	private static final VoxelShape SOUTH_UP = Block.createCubeShape(6d, 3d, 13d, 10d, 19d, 16d);
+	private static final VoxelShape SOUTH_SIDE_UP = VoxelShapes.union(SOUTH_SIDE, SOUTH_UP);
+	private static final VoxelShape EAST_SIDE = Block.createCubeShape(10d, 0d, 6d, 16d, 3d, 10d);
+	private static final VoxelShape EAST_UP = Block.createCubeShape(13d, 3d, 6d, 16d, 19d, 10d);
+	private static final VoxelShape EAST_SIDE_UP = VoxelShapes.union(EAST_SIDE, EAST_UP);
+	private static final VoxelShape WEST_SIDE = Block.createCubeShape(0d, 0d, 6d, 6d, 3d, 10d);
+	private static final VoxelShape WEST_UP = Block.createCubeShape(0d, 3d, 6d, 3d, 19d, 10d);
+	private static final VoxelShape WEST_SIDE_UP = VoxelShapes.union(WEST_SIDE, WEST_UP);
+
+	private static final CableConnection[] CONNECTIONS = CableConnection.values();
+
+	/** Every combination of connections' shape, indexed by {@link #shapeIndex}. */
+	private static final VoxelShape[] SHAPES = new VoxelShape[CONNECTIONS.length * CONNECTIONS.length * CONNECTIONS.length * CONNECTIONS.length];
+	/** Which faces of each shape are full, one bit per {@link Direction} ordinal, indexed like {@link #SHAPES}. */
+	private static final int[] SOLID_FACES = new int[SHAPES.length];
+
+	static {
+		for (CableConnection north : CONNECTIONS) {
+			for (CableConnection south : CONNECTIONS) {
+				for (CableConnection east : CONNECTIONS) {
+					for (CableConnection west : CONNECTIONS) {
+						VoxelShape result = NO_SIDE;
+						result = withSide(result, north, NORTH_SIDE, NORTH_SIDE_UP);
+						result = withSide(result, south, SOUTH_SIDE, SOUTH_SIDE_UP);
+						result = withSide(result, east, EAST_SIDE, EAST_SIDE_UP);
+						result = withSide(result, west, WEST_SIDE, WEST_SIDE_UP);
+
+						int index = shapeIndex(north, south, east, west);
+						SHAPES[index] = result;
+						for (Direction dir : Direction.values()) {
+							if (Block.isFaceFullCube(result, dir)) SOLID_FACES[index] |= 1 << dir.ordinal();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static VoxelShape withSide(VoxelShape shape, CableConnection connection, VoxelShape side, VoxelShape sideUp) {
+		if (connection == CableConnection.CONNECTED) return VoxelShapes.union(shape, side);
+		if (connection == CableConnection.CONNECTED_UP) return VoxelShapes.union(shape, sideUp);
+		return shape;
+	}
+
+	private static int shapeIndex(CableConnection north, CableConnection south, CableConnection east, CableConnection west) {
+		int size = CONNECTIONS.length;
+		return ((north.ordinal() * size + south.ordinal()) * size + east.ordinal()) * size + west.ordinal();
+	}
+
+	private static int shapeIndex(BlockState state) {
+		return shapeIndex(state.get(NORTH), state.get(SOUTH), state.get(EAST), state.get(WEST));
+	}
 
 	@Override
 	public VoxelShape getBoundingShape(BlockState state, BlockView view, BlockPos pos) {
-		VoxelShape result = NO_SIDE;
-		if (state.get(NORTH) == CableConnection.CONNECTED) result = VoxelShapes.union(result, NORTH_SIDE);
-		if (state.get(NORTH) == CableConnection.CONNECTED_UP) result = VoxelShapes.union(result, NORTH_SIDE_UP);
-		if (state.get(SOUTH) == CableConnection.CONNECTED) result = VoxelShapes.union(result, SOUTH_SIDE);
-		if (state.get(SOUTH) == CableConnection.CONNECTED_UP) result = VoxelShapes.union(result, SOUTH_SIDE_UP);
-		if (state.get(EAST) == CableConnection.CONNECTED) result = VoxelShapes.union(result, EAST_SIDE);
-		if (state.get(EAST) == CableConnection.CONNECTED_UP) result = VoxelShapes.union(result, EAST_SIDE_UP);
-		if (state.get(WEST) == CableConnection.CONNECTED) result = VoxelShapes.union(result, WEST_SIDE);
-		if (state.get(WEST) == CableConnection.CONNECTED_UP) result = VoxelShapes.union(result, WEST_SIDE_UP);
-		return result;
+		return SHAPES[shapeIndex(state)];
+	}
+
+	/**
+	 * Same as checking {@link Block#isFaceFullCube} against {@link #getBoundingShape}, without building anything.
+	 */
+	public static boolean isSideSolid(BlockState state, Direction dir) {
+		return (SOLID_FACES[shapeIndex(state)] & (1 << dir.ordinal())) != 0;
 	}
 
 	private CableConnection getCableConnections(BlockView world, BlockPos pos, Direction dir) {
@@ -101,9 +146,14 @@ public class InfraRedstoneCable extends BlockBase {
 
 	@Override
 	public BlockState getPlacementState(ItemPlacementContext ctx) {
-		World world = ctx.getWorld();
-		BlockPos pos = ctx.getPos();
-		return this.getDefaultState()
+		//Connections inside a bulk edit get worked out all at once when it closes
+		if (BulkCableEdit.getSuspending(ctx.getWorld(), ctx.getPos()) != null) return getDefaultState();
+		return getConnectedState(ctx.getWorld(), ctx.getPos(), getDefaultState());
+	}
+
+	@Override
+	public BlockState getConnectedState(World world, BlockPos pos, BlockState state) {
+		return state
 				.with(NORTH, getCableConnections(world, pos, Direction.NORTH))
 				.with(SOUTH, getCableConnections(world, pos, Direction.SOUTH))
 				.with(EAST, getCableConnections(world, pos, Direction.EAST))
@@ -112,34 +162,34 @@ public class InfraRedstoneCable extends BlockBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		if (deferToBulkEdit(world, pos)) return;
 		if (!this.canBlockStay(world, pos)) {
+			//Neighbors hear about it from onBlockRemoved
 			world.breakBlock(pos, true);
-
-			for (Direction dir : Direction.values()) {
-				world.updateNeighborsAlways(pos.offset(dir), this);
-			}
+		} else if (world.isClient) {
+			BlockState connected = getConnectedState(world, pos, state);
+			if (connected != state) world.setBlockState(pos, connected, 2);
 		} else {
-			world.setBlockState(pos, this.getDefaultState()
-					.with(NORTH, getCableConnections(world, pos, Direction.NORTH))
-					.with(SOUTH, getCableConnections(world, pos, Direction.SOUTH))
-					.with(EAST, getCableConnections(world, pos, Direction.EAST))
-					.with(WEST, getCableConnections(world, pos, Direction.WEST))
-			);
+			ConnectionUpdateQueue.get(world).add(pos);
+			WireNetworkRegistry.get(world).onNeighborChanged(pos, block);
 		}
 	}
 
 	@Override
 	public void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState stateFrom) {
-		for (Direction dir : Direction.values()) {
-			world.updateNeighborsAlways(pos.offset(dir), this);
-		}
+		//Connections changing don't move any signal
+		if (stateFrom.getBlock() == this) return;
+		if (deferToBulkEdit(world, pos)) return;
+		if (!world.isClient) WireNetworkRegistry.get(world).invalidateAround(pos);
+		updateConnectingNeighbors(world, pos, this);
 	}
 
 	@Override
 	public void onBlockRemoved(BlockState state, World world, BlockPos pos, BlockState stateFrom, boolean b) {
-		for (Direction dir : Direction.values()) {
-			world.updateNeighborsAlways(pos.offset(dir), this);
-		}
+		if (stateFrom.getBlock() == this) return;
+		if (deferToBulkEdit(world, pos)) return;
+		if (!world.isClient) WireNetworkRegistry.get(world).invalidateAround(pos);
+		updateConnectingNeighbors(world, pos, this);
 	}
 
 	public boolean canBlockStay(World world, BlockPos pos) {
@@ -2,6 +2,9 @@ package com.elytradev.infraredstone.block;
 
 import com.elytradev.infraredstone.api.InfraRedstoneCapable;
 import com.elytradev.infraredstone.api.SimpleInfraRedstoneSignal;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import com.elytradev.infraredstone.util.BulkCableEdit;
+import com.elytradev.infraredstone.util.ConnectionUpdateQueue;
 import net.fabricmc.fabric.block.FabricBlockSettings;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -81,9 +84,14 @@ public class InfraRedstoneScaffold extends BlockBase {
 
 	@Override
 	public BlockState getPlacementState(ItemPlacementContext ctx) {
-		World world = ctx.getWorld();
-		BlockPos pos = ctx.getPos();
-		return this.getDefaultState()
+		//Connections inside a bulk edit get worked out all at once when it closes
+		if (BulkCableEdit.getSuspending(ctx.getWorld(), ctx.getPos()) != null) return getDefaultState();
+		return getConnectedState(ctx.getWorld(), ctx.getPos(), getDefaultState());
+	}
+
+	@Override
+	public BlockState getConnectedState(World world, BlockPos pos, BlockState state) {
+		return state
 				.with(NORTH, getCableConnections(world, pos, Direction.NORTH))
 				.with(SOUTH, getCableConnections(world, pos, Direction.SOUTH))
 				.with(EAST, getCableConnections(world, pos, Direction.EAST))
@@ -93,26 +101,29 @@ public class InfraRedstoneScaffold extends BlockBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
-		world.setBlockState(pos, this.getDefaultState()
-				.with(NORTH, getCableConnections(world, pos, Direction.NORTH))
-				.with(SOUTH, getCableConnections(world, pos, Direction.SOUTH))
-				.with(EAST, getCableConnections(world, pos, Direction.EAST))
-				.with(WEST, getCableConnections(world, pos, Direction.WEST))
-				.with(UP, getCableConnections(world, pos, Direction.UP))
-		);
+		if (deferToBulkEdit(world, pos)) return;
+		if (world.isClient) {
+			BlockState connected = getConnectedState(world, pos, state);
+			if (connected != state) world.setBlockState(pos, connected, 2);
+		} else {
+			ConnectionUpdateQueue.get(world).add(pos);
+			WireNetworkRegistry.get(world).onNeighborChanged(pos, block);
+		}
 	}
 
 	@Override
 	public void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState stateFrom) {
-		for (Direction dir : Direction.values()) {
-			world.updateNeighborsAlways(pos.offset(dir), this);
-		}
+		if (stateFrom.getBlock() == this) return;
+		if (deferToBulkEdit(world, pos)) return;
+		if (!world.isClient) WireNetworkRegistry.get(world).invalidateAround(pos);
+		updateConnectingNeighbors(world, pos, this);
 	}
 
 	@Override
 	public void onBlockRemoved(BlockState state, World world, BlockPos pos, BlockState stateFrom, boolean b) {
-		for (Direction dir : Direction.values()) {
-			world.updateNeighborsAlways(pos.offset(dir), this);
-		}
+		if (stateFrom.getBlock() == this) return;
+		if (deferToBulkEdit(world, pos)) return;
+		if (!world.isClient) WireNetworkRegistry.get(world).invalidateAround(pos);
+		updateConnectingNeighbors(world, pos, this);
 	}
 }
@@ -1,5 +1,8 @@
 package com.elytradev.infraredstone.block;
 
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.logic.engine.IREngine;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
 import net.fabricmc.fabric.block.FabricBlockSettings;
 import net.minecraft.block.*;
 import net.minecraft.block.entity.BlockEntity;
@@ -38,6 +41,31 @@ public class ModuleBase extends SilkBlockWithEntity implements NamedBlock {
 		return this;
 	}
 
+	@Override
+	public void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState stateFrom) {
+		super.onBlockAdded(state, world, pos, stateFrom);
+		// Modules can sit diagonally from a wire without updating it, so tell the networks ourselves
+		if (!world.isClient && state.getBlock() != stateFrom.getBlock()) WireNetworkRegistry.get(world).invalidateAround(pos);
+	}
+
+	@Override
+	public void onBlockRemoved(BlockState state, World world, BlockPos pos, BlockState stateFrom, boolean b) {
+		super.onBlockRemoved(state, world, pos, stateFrom, b);
+		if (!world.isClient && state.getBlock() != stateFrom.getBlock()) WireNetworkRegistry.get(world).invalidateAround(pos);
+	}
+
+	/**
+	 * Wakes the module here so it rechecks its inputs. Vanilla redstone and plain block changes only reach a
+	 * sleeping module through neighbor updates. Updates that didn't come from another module also recompile the
+	 * module's circuit; updates from modules are skipped there, since compiled circuits already read their outputs.
+	 */
+	protected void wakeModule(World world, BlockPos pos, Block block) {
+		if (world.isClient) return;
+		BlockEntity be = world.getBlockEntity(pos);
+		if (be instanceof IRComponentBlockEntity) ((IRComponentBlockEntity)be).wake();
+		if (!(block instanceof ModuleBase)) IREngine.get(world).invalidateCircuits(pos);
+	}
+
 	public boolean canBlockStay(World world, BlockPos pos) {
 		return world.getBlockState(pos.down()).hasSolidTopSurface(world, pos.down());
 	}
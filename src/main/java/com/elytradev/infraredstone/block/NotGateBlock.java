@@ -119,6 +119,7 @@ public class NotGateBlock extends ModuleBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		wakeModule(world, pos, block);
 		BlockEntity be = world.getBlockEntity(pos);
 		if (be instanceof NotGateBlockEntity) {
 			world.setBlockState(pos, state
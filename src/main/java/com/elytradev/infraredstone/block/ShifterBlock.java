@@ -102,6 +102,7 @@ public class ShifterBlock extends ModuleBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		wakeModule(world, pos, block);
 		if (!this.canBlockStay(world, pos)) {
 			world.breakBlock(pos, true);
 
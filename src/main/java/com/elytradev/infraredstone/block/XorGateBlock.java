@@ -117,6 +117,7 @@ public class XorGateBlock extends ModuleBase {
 
 	@Override
 	public void neighborUpdate(BlockState state, World world, BlockPos pos, Block block, BlockPos fromPos) {
+		wakeModule(world, pos, block);
 		BlockEntity be = world.getBlockEntity(pos);
 		if (be instanceof XorGateBlockEntity) {
 			world.setBlockState(pos, state
@@ -6,29 +6,20 @@ import com.elytradev.infraredstone.api.MultimeterProbeProvider;
 import com.elytradev.infraredstone.block.AndGateBlock;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
 import com.elytradev.infraredstone.util.enums.InactiveSelection;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-import java.util.ArrayList;
-import java.util.List;
-
-public class AndGateBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class AndGateBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	public boolean booleanMode;
@@ -37,95 +28,82 @@ public class AndGateBlockEntity extends IRComponentBlockEntity implements Tickab
 	private int valRight;
 	public InactiveSelection inactive = InactiveSelection.NONE;
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-	boolean lastBooleanMode = false;
-	int lastValLeft = 0;
-	int lastValBack = 0;
-	int lastValRight = 0;
-	InactiveSelection lastInactive = InactiveSelection.NONE;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, boolean mode, inactive input, left, back, right. */
+	private static final int[] SYNC_FIELD_BITS = { 6, 1, 2, 6, 6, 6 };
+	/** Sync fields that are settings: the boolean mode and inactive input. */
+	private static final int SETTING_FIELDS = 1 << 1 | 1 << 2;
 
 	public AndGateBlockEntity() {
 		super(ModBlocks.AND_GATE_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
+		BlockState state = world.getBlockState(this.getPos());
+		if (state.getBlock() instanceof AndGateBlock) {
+			Direction left = state.get(AndGateBlock.FACING).rotateYCounterclockwise();
+			Direction right = state.get(AndGateBlock.FACING).rotateYClockwise();
+			Direction back = state.get(AndGateBlock.FACING).getOpposite();
+			int[] inputs = InRedLogic.findIRValues(world, pos, left, right, back);
+			int sigLeft = inputs[0];
+			int sigRight = inputs[1];
+			int sigBack = inputs[2];
+			valLeft = sigLeft;
+			valRight = sigRight;
+			valBack = sigBack;
+
+			signal.setNextSignalValue(evaluate(booleanMode, inactive, sigLeft, sigRight, sigBack));
+			settle(sigLeft | sigRight << 6 | sigBack << 12, signal.getNextSignalValue() == signal.getSignalValue());
 			markDirty();
 		}
-		if (world.isClient || !hasWorld()) return;
-
-		BlockState state = world.getBlockState(this.getPos());
+	}
 
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof AndGateBlock) {
-				Direction left = state.get(AndGateBlock.FACING).rotateYCounterclockwise();
-				Direction right = state.get(AndGateBlock.FACING).rotateYClockwise();
-				Direction back = state.get(AndGateBlock.FACING).getOpposite();
-				int sigLeft = InRedLogic.findIRValue(world, pos, left);
-				int sigRight = InRedLogic.findIRValue(world, pos, right);
-				int sigBack = InRedLogic.findIRValue(world, pos, back);
-				List<Integer> signals = new ArrayList<>();
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
 
-				valLeft = sigLeft;
-				valRight = sigRight;
-				valBack = sigBack;
-				int result = 0b11_1111; //63
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
 
-				if (!booleanMode) {
-					switch (inactive) {
-						case LEFT:
-							signals.add(sigBack);
-							signals.add(sigRight);
-							break;
-						case BACK:
-							signals.add(sigLeft);
-							signals.add(sigRight);
-							break;
-						case RIGHT:
-							signals.add(sigLeft);
-							signals.add(sigBack);
-							break;
-						case NONE:
-							signals.add(sigLeft);
-							signals.add(sigBack);
-							signals.add(sigRight);
-					}
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof AndGateBlock)) return false;
+		Direction facing = state.get(AndGateBlock.FACING);
+		int param = (booleanMode ? 1 : 0) | inactive.ordinal() << 1;
+		return node.define(Netlist.AND, param, signal, null, facing.rotateYCounterclockwise(), facing.rotateYClockwise(), facing.getOpposite());
+	}
 
-					for (int signal : signals) {
-						// if any input added to signal is 0b00_0000, will result in no output
-						result &= signal;
-					}
-				} else {
-					switch (inactive) {
-						case LEFT:
-							result = (sigBack > 0 && sigRight > 0)? 1 : 0;
-							break;
-						case BACK:
-							result = (sigLeft > 0 && sigRight > 0)? 1 : 0;
-							break;
-						case RIGHT:
-							result = (sigLeft > 0 && sigBack > 0)? 1 : 0;
-							break;
-						case NONE:
-							result = (sigLeft > 0 && sigBack > 0 && sigRight > 0)? 1 : 0;
-					}
-				}
+	@Override
+	public void onInputsChanged(int[] inputs) {
+		valLeft = inputs[0];
+		valRight = inputs[1];
+		valBack = inputs[2];
+		markDirty();
+	}
 
-				signal.setNextSignalValue(result);
-				markDirty();
-			}
+	/**
+	 * Works out the gate's output from its inputs. Doesn't touch the world, so compiled circuits call it too.
+	 */
+	public static int evaluate(boolean booleanMode, InactiveSelection inactive, int sigLeft, int sigRight, int sigBack) {
+		if (!booleanMode) {
+			// if any active input is 0b00_0000, will result in no output
+			int result = 0b11_1111; //63
+			if (inactive != InactiveSelection.LEFT) result &= sigLeft;
+			if (inactive != InactiveSelection.BACK) result &= sigBack;
+			if (inactive != InactiveSelection.RIGHT) result &= sigRight;
+			return result;
 		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
-			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
+			boolean left = inactive == InactiveSelection.LEFT || sigLeft > 0;
+			boolean back = inactive == InactiveSelection.BACK || sigBack > 0;
+			boolean right = inactive == InactiveSelection.RIGHT || sigRight > 0;
+			return (left && back && right) ? 1 : 0;
 		}
 	}
 
@@ -137,6 +115,7 @@ public class AndGateBlockEntity extends IRComponentBlockEntity implements Tickab
 			booleanMode = true;
 			world.playSound(null, pos, SoundEvents.BLOCK_COMPARATOR_CLICK, SoundCategory.BLOCK, 0.3f, 0.55f);
 		}
+		settingsChanged();
 		markDirty();
 	}
 
@@ -147,6 +126,7 @@ public class AndGateBlockEntity extends IRComponentBlockEntity implements Tickab
 			inactive = newInactive;
 		}
 		world.playSound(null, pos, SoundEvents.BLOCK_COMPARATOR_CLICK, SoundCategory.BLOCK, 0.3f, 0.45f);
+		settingsChanged();
 		markDirty();
 	}
 
@@ -174,51 +154,47 @@ public class AndGateBlockEntity extends IRComponentBlockEntity implements Tickab
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive
-				|| inactive!=lastInactive
-				|| valLeft!=lastValLeft
-				|| valRight!=lastValRight
-				|| valBack!=lastValBack
-				|| lastBooleanMode != booleanMode
-				|| firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastBooleanMode != booleanMode || inactive != lastInactive || firstTick) {
-				world.updateNeighborsAlways(pos.offset(Direction.UP), ModBlocks.NOT_GATE);
-			}
-			if (lastActive != active
-					|| valLeft!=lastValLeft
-					|| valRight!=lastValRight
-					|| valBack!=lastValBack
-					|| firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.NOT_GATE);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return booleanMode ? 1 : 0;
+			case 2: return inactive.ordinal();
+			case 3: return valLeft;
+			case 4: return valBack;
+			case 5: return valRight;
+			default: return 0;
+		}
+	}
 
-			lastBooleanMode = booleanMode;
-			lastActive = isActive();
-			lastValLeft = valLeft;
-			lastValRight = valRight;
-			lastValBack = valBack;
-			lastInactive = inactive;
-			if (firstTick) firstTick = false;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: booleanMode = value != 0; break;
+			case 2: inactive = InactiveSelection.fromOrdinal(value); break;
+			case 3: valLeft = value; break;
+			case 4: valBack = value; break;
+			case 5: valRight = value; break;
 		}
 	}
 
+	@Override
+	protected int getSettingFields() {
+		return SETTING_FIELDS;
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof AndGateBlock) ? state.get(AndGateBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
@@ -6,67 +6,66 @@ import com.elytradev.infraredstone.api.InfraRedstoneCapable;
 import com.elytradev.infraredstone.block.DiodeBlock;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class DiodeBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class DiodeBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	private int mask = 0b11_1111;
 
-	//Transient data to throttle sync down here
-	boolean lastActive;
-	int lastMask;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, mask. */
+	private static final int[] SYNC_FIELD_BITS = { 6, 6 };
+	/** Sync fields that are settings: the mask. */
+	private static final int SETTING_FIELDS = 1 << 1;
 
 	public DiodeBlockEntity() {
 		super(ModBlocks.DIODE_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
+		BlockState state = world.getBlockState(this.getPos());
+		if (state.getBlock() instanceof DiodeBlock) {
+			Direction back = state.get(DiodeBlock.FACING).getOpposite();
+			int sig = InRedLogic.findIRValue(world, pos, back);
+			signal.setNextSignalValue(sig & mask);
+			settle(sig, signal.getNextSignalValue() == signal.getSignalValue());
 			markDirty();
 		}
-		if (world.isClient || !hasWorld()) return;
+	}
 
-		BlockState state = world.getBlockState(this.getPos());
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
 
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof DiodeBlock) {
-				Direction back = state.get(DiodeBlock.FACING).getOpposite();
-				int sig = InRedLogic.findIRValue(world, pos, back);
-				signal.setNextSignalValue(sig & mask);
-				markDirty();
-			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
-			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
-		}
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof DiodeBlock)) return false;
+		return node.define(Netlist.DIODE, mask, signal, null, state.get(DiodeBlock.FACING).getOpposite());
 	}
 
 	public void setMask(int bit) {
 		mask ^= (1 << bit);
+		settingsChanged();
 		world.playSound(null, pos, SoundEvents.BLOCK_COMPARATOR_CLICK, SoundCategory.BLOCK, 0.3f, 0.45f);
 		markDirty();
 	}
@@ -88,42 +87,43 @@ public class DiodeBlockEntity extends IRComponentBlockEntity implements Tickable
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (mask != lastMask || active != lastActive || firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastMask != mask || firstTick) {
-//				BlockState state = world.getBlockState(pos);
-//				ws.updateListeners(pos, state, state, 1 | 2 | 16);
-				world.updateNeighborsAlways(pos.offset(Direction.UP), ModBlocks.DIODE); //this could have collateral damage, but I can't find any other fix
-			} else if (lastActive != active || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.DIODE);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return mask;
+			default: return 0;
+		}
+	}
 
-			if (firstTick) firstTick = false;
-			lastMask = mask;
-			lastActive = active;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: mask = value; break;
 		}
 	}
 
+	@Override
+	protected int getSettingFields() {
+		return SETTING_FIELDS;
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof DiodeBlock) ? state.get(DiodeBlock.FACING) : null;
+	}
+
 	public int getMask() {
 		return mask;
 	}
 
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
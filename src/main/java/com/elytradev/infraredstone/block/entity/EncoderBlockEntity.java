@@ -4,119 +4,106 @@ import com.elytradev.infraredstone.api.*;
 import com.elytradev.infraredstone.block.EncoderBlock;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.world.chunk.Chunk;
 import io.github.prospector.silk.fluid.FluidContainer;
 import io.github.prospector.silk.fluid.FluidInstance;
 
-public class EncoderBlockEntity extends  IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class EncoderBlockEntity extends  IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal. */
+	private static final int[] SYNC_FIELD_BITS = { 6 };
 
 	public EncoderBlockEntity() {
 		super(ModBlocks.ENCODER_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
-			markDirty();
-		}
-		if (world.isClient || !hasWorld()) return;
-
+	public void computeNext() {
+		//IR tick means we're searching for a next value
 		BlockState state = world.getBlockState(this.getPos());
-
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof EncoderBlock) {
-				Direction back = state.get(EncoderBlock.FACING).getOpposite();
-				BlockPos backPos = this.getPos().offset(back);
-				BlockState quantify = world.getBlockState(backPos);
-				// check for the main encoder API
-				if (quantify instanceof EncoderScannable) {
-					signal.setNextSignalValue(((EncoderScannable) quantify).getEncoderValue(back.getOpposite()));
-					// make sure we don't hit the if later down
-					markDirty();
-					return;
-					// check for the non-TE encoder API
-				} else if (quantify instanceof SimpleEncoderScannable) {
-					signal.setNextSignalValue(((SimpleEncoderScannable) quantify).getEncoderValue(world, backPos, quantify, back.getOpposite()));
-					markDirty();
-					return;
-					// no encoder API, so check for a tile entity
-				} else if (world.getBlockEntity(backPos) != null) {
-					BlockEntity be = world.getBlockEntity(backPos);
-					// check for capabilities on the tile entity, make sure we only move on if we don't find any
-					if (be instanceof Inventory) {
-						Inventory inv = (Inventory)be;
-						int stacksChecked = 0;
-						float fillPercentage = 0f;
-						for (int i = 0; i < (inv.getInvSize() ); i++) {
-							ItemStack stack = inv.getInvStack(i);
-							if (!stack.isEmpty()) {
-								fillPercentage += (float)stack.getAmount() / (float)Math.min(inv.getInvMaxStackAmount(), stack.getMaxAmount());
-								stacksChecked++;
-							}
+		if (state.getBlock() instanceof EncoderBlock) {
+			Direction back = state.get(EncoderBlock.FACING).getOpposite();
+			BlockPos backPos = this.getPos().offset(back);
+			BlockState quantify = world.getBlockState(backPos);
+			// check for the main encoder API
+			if (quantify instanceof EncoderScannable) {
+				signal.setNextSignalValue(((EncoderScannable) quantify).getEncoderValue(back.getOpposite()));
+				// make sure we don't hit the if later down
+				markDirty();
+				return;
+				// check for the non-TE encoder API
+			} else if (quantify instanceof SimpleEncoderScannable) {
+				signal.setNextSignalValue(((SimpleEncoderScannable) quantify).getEncoderValue(world, backPos, quantify, back.getOpposite()));
+				markDirty();
+				return;
+				// no encoder API, so check for a tile entity
+			} else if (world.getBlockEntity(backPos) != null) {
+				BlockEntity be = world.getBlockEntity(backPos);
+				// check for capabilities on the tile entity, make sure we only move on if we don't find any
+				if (be instanceof Inventory) {
+					Inventory inv = (Inventory)be;
+					int stacksChecked = 0;
+					float fillPercentage = 0f;
+					for (int i = 0; i < (inv.getInvSize() ); i++) {
+						ItemStack stack = inv.getInvStack(i);
+						if (!stack.isEmpty()) {
+							fillPercentage += (float)stack.getAmount() / (float)Math.min(inv.getInvMaxStackAmount(), stack.getMaxAmount());
+							stacksChecked++;
 						}
-						fillPercentage /= (float)inv.getInvSize();
-						signal.setNextSignalValue(MathHelper.floor(fillPercentage * 62.0F) + (stacksChecked > 0 ? 1 : 0));
-						markDirty();
-						return;
-					}
-					if (be instanceof FluidContainer) {
-						FluidContainer cont = (FluidContainer)be;
-						float fillPercentage = (float) cont.getMaxCapacity() / (float)cont.getCurrentFill(back.getOpposite());
-						signal.setNextSignalValue(MathHelper.floor(fillPercentage * 62.0F) + (cont.getCurrentFill(back.getOpposite()) > 0 ? 1 : 0));
 					}
-					// check for a vanilla comparator interface
-				} if (quantify.hasComparatorOutput()) {
-					signal.setNextSignalValue(4*quantify.getComparatorOutput(world, backPos));
-					// can't find anything else, so check for redstone/inred signal
+					fillPercentage /= (float)inv.getInvSize();
+					signal.setNextSignalValue(MathHelper.floor(fillPercentage * 62.0F) + (stacksChecked > 0 ? 1 : 0));
+					markDirty();
+					return;
+				}
+				if (be instanceof FluidContainer) {
+					FluidContainer cont = (FluidContainer)be;
+					float fillPercentage = (float) cont.getMaxCapacity() / (float)cont.getCurrentFill(back.getOpposite());
+					signal.setNextSignalValue(MathHelper.floor(fillPercentage * 62.0F) + (cont.getCurrentFill(back.getOpposite()) > 0 ? 1 : 0));
+				}
+				// check for a vanilla comparator interface
+			} if (quantify.hasComparatorOutput()) {
+				signal.setNextSignalValue(4*quantify.getComparatorOutput(world, backPos));
+				// can't find anything else, so check for redstone/inred signal
+			} else {
+				// redstone first so inred's redstone-catching doesn't override it
+				int sigBack = world.getEmittedRedstonePower(backPos, back);
+				if (sigBack != 0) {
+					signal.setNextSignalValue(sigBack);
 				} else {
-					// redstone first so inred's redstone-catching doesn't override it
-					int sigBack = world.getEmittedRedstonePower(backPos, back);
-					if (sigBack != 0) {
-						signal.setNextSignalValue(sigBack);
-					} else {
-						signal.setNextSignalValue(InRedLogic.findIRValue(world, pos, back));
-					}
+					signal.setNextSignalValue(InRedLogic.findIRValue(world, pos, back));
 				}
-
-				markDirty();
 			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
+
 			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
 		}
 	}
 
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
+
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
 	@Override
 	public CompoundTag toTag(CompoundTag compound) {
 		CompoundTag tag = super.toTag(compound);
@@ -131,33 +118,32 @@ public class EncoderBlockEntity extends  IRComponentBlockEntity implements Ticka
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive || firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastActive != active || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.ENCODER);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			default: return 0;
+		}
+	}
 
-			if (firstTick) firstTick = false;
-			lastActive = active;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
 		}
 	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof EncoderBlock) ? state.get(EncoderBlock.FACING) : null;
+	}
 	
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
@@ -1,15 +1,317 @@
 package com.elytradev.infraredstone.block.entity;
 
+import com.elytradev.infraredstone.logic.engine.IREngine;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.IRScheduler;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import com.elytradev.infraredstone.util.InfraRedstoneConfig;
+import com.elytradev.infraredstone.util.ModuleSyncQueue;
+import com.elytradev.infraredstone.util.ModuleSyncState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.util.math.Direction;
+
+import java.util.Arrays;
 
 public abstract class IRComponentBlockEntity extends BlockEntity {
+	private static final int[] NO_SYNC_FIELDS = new int[0];
+
+	private boolean dormant;
+	private int dormantTicks;
+	private int lastInputs = -1;
+	private Netlist circuit;
+	private ModuleSyncState syncState;
+	/** What {@link #markDirty} last saw. Server only, and only made the first time it's needed. */
+	private ChangeTracker changes;
+
+	//Shared by every module, since saves are only ever collected on the server thread, one module at a time
+	private static int[] saveScratch = new int[8];
+	private static int saveScratchSize;
+
 	public IRComponentBlockEntity(BlockEntityType<?> blockEntityType) {
 		super(blockEntityType);
 	}
 
+	@Override
+	public void validate() {
+		super.validate();
+		if (world == null || world.isClient) return;
+		//Whatever was just read with fromTag is already saved, so only changes from here on need the chunk saving
+		saveStateChanged();
+		if (this instanceof IRModule) IREngine.get(world).add((IRComponentBlockEntity & IRModule) this);
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		if (world != null && !world.isClient && this instanceof IRModule) IREngine.get(world).remove(this);
+	}
+
+	/**
+	 * Call whenever the module's state might have changed. Compares everything clients see against last time, all at
+	 * once, and if anything changed, queues a sync; if a setting changed, queues an update for the block above; and if
+	 * the redstone output changed, queues one for the blocks in front.
+	 * <p>
+	 * Only marks the chunk for saving when something that gets saved actually changed since the last time, so chunks
+	 * full of modules that are ticking but holding steady don't get rewritten on every autosave.
+	 */
+	@Override
+	public void markDirty() {
+		if (world == null || world.isClient) {
+			super.markDirty();
+			return;
+		}
+		if (saveStateChanged()) super.markDirty();
+
+		long fields = packSyncFields();
+		boolean active = isActive();
+		ChangeTracker changes = getChangeTracker();
+		if (changes.tracking && fields == changes.fields && active == changes.active) return;
+		long changed = (changes.tracking) ? fields ^ changes.fields : -1L;
+		boolean activeChanged = !changes.tracking || active != changes.active;
+		changes.fields = fields;
+		changes.active = active;
+		changes.tracking = true;
+
+		queueSync();
+		if ((changed & fieldBits(getSettingFields())) != 0) {
+			IREngine.get(world).queueSettingsUpdate(pos);
+		}
+		if (activeChanged) {
+			//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
+			Direction front = getOutputSide();
+			if (front != null) queueOutputUpdate(front);
+		}
+	}
+
+	/**
+	 * @return true if the module is putting out vanilla redstone power.
+	 */
+	public boolean isActive() {
+		return false;
+	}
+
+	/**
+	 * @return the side the module puts out vanilla redstone on, or null if it doesn't.
+	 */
+	protected Direction getOutputSide() {
+		return null;
+	}
+
+	/**
+	 * @return a mask of the sync field ids that are settings. Blocks above the module get a neighbor update when one
+	 * changes.
+	 */
+	protected int getSettingFields() {
+		return 0;
+	}
+
+	/**
+	 * @return every sync field with a bit width, packed into one long, lowest field id in the lowest bits.
+	 */
+	public long packSyncFields() {
+		int[] bits = getSyncFieldBits();
+		long packed = 0;
+		int shift = 0;
+		for (int id = 0; id < bits.length; id++) {
+			if (bits[id] == 0) continue;
+			packed |= (getSyncField(id) & ((1L << bits[id]) - 1)) << shift;
+			shift += bits[id];
+		}
+		return packed;
+	}
+
+	/**
+	 * @return which bits of {@link #packSyncFields} the indicated fields take up.
+	 */
+	private long fieldBits(int fields) {
+		int[] bits = getSyncFieldBits();
+		long mask = 0;
+		int shift = 0;
+		for (int id = 0; id < bits.length; id++) {
+			if (bits[id] == 0) continue;
+			if ((fields & (1 << id)) != 0) mask |= ((1L << bits[id]) - 1) << shift;
+			shift += bits[id];
+		}
+		return mask;
+	}
+
+	/**
+	 * Adds every value this module saves with {@link #saveValue}, so {@link #markDirty} can tell if any of them changed.
+	 * By default, that's its sync fields and its handlers' current and next signals; override to add anything else.
+	 */
+	protected void collectSaveState() {
+		for (int id = 0; id < getSyncFieldCount(); id++) {
+			saveValue(getSyncField(id));
+		}
+		if (this instanceof IRModule) {
+			for (InfraRedstoneHandler handler : ((IRModule)this).getHandlers()) {
+				saveValue(handler.getSignalValue());
+				saveValue(handler.getNextSignalValue());
+			}
+		}
+	}
+
+	protected final void saveValue(int value) {
+		if (saveScratchSize == saveScratch.length) saveScratch = Arrays.copyOf(saveScratch, saveScratchSize * 2);
+		saveScratch[saveScratchSize++] = value;
+	}
+
+	private boolean saveStateChanged() {
+		saveScratchSize = 0;
+		collectSaveState();
+		ChangeTracker changes = getChangeTracker();
+		int[] saved = changes.saved;
+		if (saved != null && saved.length == saveScratchSize) {
+			boolean same = true;
+			for (int i = 0; i < saveScratchSize; i++) {
+				if (saved[i] != saveScratch[i]) {
+					same = false;
+					break;
+				}
+			}
+			if (same) return false;
+		}
+		changes.saved = Arrays.copyOf(saveScratch, saveScratchSize);
+		return true;
+	}
+
+	private ChangeTracker getChangeTracker() {
+		if (changes == null) changes = new ChangeTracker();
+		return changes;
+	}
+
+	/**
+	 * Sends the module's state along with its chunk, so clients can draw it as soon as it loads, without asking for it.
+	 */
+	@Override
+	public CompoundTag toInitialChunkDataTag() {
+		return toTag(new CompoundTag());
+	}
+
+	/**
+	 * Tells the vanilla redstone in front of the module that its output changed. The update goes out once at the end of
+	 * the tick, however often it's queued.
+	 * @param front the side the module outputs redstone on.
+	 */
+	protected void queueOutputUpdate(Direction front) {
+		if (world != null && !world.isClient) IREngine.get(world).queueOutputUpdate(pos, front);
+	}
+
+	/**
+	 * @return the IR scheduler of the world this module is in. Server only.
+	 */
+	public IRScheduler getScheduler() {
+		return IRScheduler.get(world);
+	}
+
+	public boolean isDormant() {
+		return dormant;
+	}
+
+	/**
+	 * Makes the module evaluate on the next IR tick. Call whenever one of its inputs or settings might have changed.
+	 */
+	public void wake() {
+		dormant = false;
+		dormantTicks = 0;
+	}
+
+	/**
+	 * Call when one of the module's settings changes. Wakes it up, and recompiles its circuit if it's compiled.
+	 */
+	protected void settingsChanged() {
+		wake();
+		if (world != null && !world.isClient) IREngine.get(world).invalidateCircuits(pos);
+	}
+
+	/**
+	 * @return the compiled circuit evaluating this module, or null if it's evaluated by {@link IRModule#computeNext}.
+	 */
+	public Netlist getCircuit() {
+		return circuit;
+	}
+
+	public void setCircuit(Netlist circuit) {
+		this.circuit = circuit;
+	}
+
+	/**
+	 * Call at the start of an IR tick.
+	 * @return true if the module is asleep and should skip this tick.
+	 */
+	protected boolean skipTick() {
+		if (!dormant) return false;
+		//In case nothing told it to wake up
+		if (++dormantTicks < InfraRedstoneConfig.INSTANCE.sleepHeartbeat) return true;
+		wake();
+		//Whatever changed unannounced may have changed the networks around it too
+		if (world != null && !world.isClient) WireNetworkRegistry.get(world).markChangedAround(pos);
+		return false;
+	}
+
+	/**
+	 * Call at the end of an IR tick. Puts the module to sleep once it reads the same inputs twice in a row and its output
+	 * has caught up, since evaluating it again can't change anything until something wakes it.
+	 * @param inputs every input read this tick, packed into one int.
+	 * @param outputSettled whether the next output is the same as the current one.
+	 */
+	protected void settle(int inputs, boolean outputSettled) {
+		if (inputs == lastInputs && outputSettled) dormant = true;
+		lastInputs = inputs;
+	}
+
+	/**
+	 * Wakes every module that could be reading this one. Call when its output changes.
+	 */
+	protected void wakeReaders() {
+		if (world != null && !world.isClient) WireNetworkRegistry.get(world).wakeReaders(pos);
+	}
+
+	/**
+	 * @return the bit width of each sync field: the values clients need to draw this module, with ids from 0 up. At most
+	 * 31 of them, whose widths add up to no more than 63 bits. A width of 0 means the field has no fixed size; those
+	 * aren't compared by {@link #markDirty}, so they're only synced along with other changes.
+	 */
+	public int[] getSyncFieldBits() {
+		return NO_SYNC_FIELDS;
+	}
+
+	public final int getSyncFieldCount() {
+		return getSyncFieldBits().length;
+	}
+
+	/**
+	 * @return the current value of a sync field.
+	 */
+	public int getSyncField(int id) {
+		return 0;
+	}
+
+	/**
+	 * Applies a sync field sent from the server. Client only.
+	 */
+	public void readSyncField(int id, int value) {
+	}
+
+	/**
+	 * Sends this module's changed sync fields to the players watching it, at the end of the tick.
+	 */
+	protected void queueSync() {
+		if (world != null && !world.isClient) ModuleSyncQueue.get(world).add(this);
+	}
+
+	/**
+	 * @return what clients were last sent about this module. Server only.
+	 */
+	public ModuleSyncState getSyncState() {
+		if (syncState == null) syncState = new ModuleSyncState();
+		return syncState;
+	}
+
 	public String getValue(InfraRedstoneHandler handler) {
 		int signal = handler.getSignalValue();
 		int bit1 = ((signal & 0b00_0001) != 0) ? 1:0;
@@ -20,4 +322,14 @@ public abstract class IRComponentBlockEntity extends BlockEntity {
 		int bit6 = ((signal & 0b10_0000) != 0) ? 1:0;
 		return ": 0b"+bit6+bit5+"_"+bit4+bit3+bit2+bit1+" ("+signal+")";
 	}
+
+	private static class ChangeTracker {
+		/** The packed sync fields. */
+		long fields;
+		/** Whether the module outputs redstone. */
+		boolean active;
+		boolean tracking;
+		/** Everything {@link IRComponentBlockEntity#toTag} wrote, as of the last time the chunk was marked dirty. */
+		int[] saved;
+	}
 }
@@ -4,77 +4,80 @@ import com.elytradev.infraredstone.api.*;
 import com.elytradev.infraredstone.block.NotGateBlock;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class NotGateBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class NotGateBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	public boolean booleanMode;
 	public boolean backActive;
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-	boolean lastBooleanMode = false;
-	boolean lastBackActive = false;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, boolean mode, back active. */
+	private static final int[] SYNC_FIELD_BITS = { 6, 1, 1 };
+	/** Sync fields that are settings: the boolean mode. */
+	private static final int SETTING_FIELDS = 1 << 1;
 
 	public NotGateBlockEntity() {
 		super(ModBlocks.NOT_GATE_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
-			markDirty();
-		}
-		if (world.isClient || !hasWorld()) return;
-
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
 		BlockState state = world.getBlockState(this.getPos());
-
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof NotGateBlock) {
-				Direction back = state.get(NotGateBlock.FACING).getOpposite();
-				int sig = InRedLogic.findIRValue(world, pos, back);
-				backActive = sig != 0;
-				if (!booleanMode) {
-					signal.setNextSignalValue((~sig) & 0b11_1111);
+		if (state.getBlock() instanceof NotGateBlock) {
+			Direction back = state.get(NotGateBlock.FACING).getOpposite();
+			int sig = InRedLogic.findIRValue(world, pos, back);
+			backActive = sig != 0;
+			if (!booleanMode) {
+				signal.setNextSignalValue((~sig) & 0b11_1111);
+			} else {
+				if (sig == 0) {
+					signal.setNextSignalValue(1);
 				} else {
-					if (sig == 0) {
-						signal.setNextSignalValue(1);
-					} else {
-						signal.setNextSignalValue(0);
-					}
+					signal.setNextSignalValue(0);
 				}
-				markDirty();
 			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
+			settle(sig, signal.getNextSignalValue() == signal.getSignalValue());
 			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
 		}
 	}
 
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
+
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof NotGateBlock)) return false;
+		return node.define(Netlist.NOT, booleanMode ? 1 : 0, signal, null, state.get(NotGateBlock.FACING).getOpposite());
+	}
+
+	@Override
+	public void onInputsChanged(int[] inputs) {
+		backActive = inputs[0] != 0;
+		markDirty();
+	}
+
 	public void toggleBooleanMode() {
 		if (booleanMode) {
 			booleanMode = false;
@@ -83,6 +86,7 @@ public class NotGateBlockEntity extends IRComponentBlockEntity implements Tickab
 			booleanMode = true;
 			world.playSound(null, pos, SoundEvents.BLOCK_COMPARATOR_CLICK, SoundCategory.BLOCK, 0.3f, 0.55f);
 		}
+		settingsChanged();
 		markDirty();
 	}
 
@@ -104,41 +108,41 @@ public class NotGateBlockEntity extends IRComponentBlockEntity implements Tickab
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive
-				|| lastBackActive != backActive
-				|| lastBooleanMode != booleanMode
-				|| firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastBooleanMode != booleanMode || firstTick) {
-				world.updateNeighborsAlways(pos.offset(Direction.UP), ModBlocks.NOT_GATE);
-			}
-			if (lastActive != active || lastBackActive != backActive || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.NOT_GATE);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return booleanMode ? 1 : 0;
+			case 2: return backActive ? 1 : 0;
+			default: return 0;
+		}
+	}
 
-			lastBooleanMode = booleanMode;
-			lastActive = isActive();
-			lastBackActive = backActive;
-			if (firstTick) firstTick = false;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: booleanMode = value != 0; break;
+			case 2: backActive = value != 0; break;
 		}
 	}
 
+	@Override
+	protected int getSettingFields() {
+		return SETTING_FIELDS;
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof NotGateBlock) ? state.get(NotGateBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
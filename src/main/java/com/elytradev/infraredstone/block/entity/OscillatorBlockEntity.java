@@ -6,81 +6,86 @@ import com.elytradev.infraredstone.api.MultimeterProbeProvider;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.OscillatorBlock;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class OscillatorBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class OscillatorBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	private int refreshTicks;
 	public int maxRefreshTicks = 4;
 	private int sigToWrite;
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, refresh delay (1 to 100). */
+	private static final int[] SYNC_FIELD_BITS = { 6, 7 };
 
 	public OscillatorBlockEntity() {
 		super(ModBlocks.OSCILLATOR_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
-			markDirty();
-		}
-		if (world.isClient || !hasWorld()) return;
-
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
 		BlockState state = world.getBlockState(this.getPos());
+		if (state.getBlock() instanceof OscillatorBlock) {
+			Direction back = state.get(OscillatorBlock.FACING).getOpposite();
+			int sig = InRedLogic.findIRValue(world, pos, back);
+			step(sig);
+			settle(sig, sig == signal.getSignalValue() && signal.getNextSignalValue() == signal.getSignalValue());
+		}
+	}
 
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof OscillatorBlock) {
-				Direction back = state.get(OscillatorBlock.FACING).getOpposite();
-				int sig = InRedLogic.findIRValue(world, pos, back);
-				if (sig != signal.getSignalValue()) {
-					//in and out signals are different, check if it's in the middle of a refresh cycle
-					if (refreshTicks <= 0) {
-						//refresh cycle ended, set signal and grab next signal
-						signal.setNextSignalValue(sigToWrite);
-						sigToWrite = sig;
-						refreshTicks = maxRefreshTicks;
-					} else {
-						//in the middle of a cycle, keep at what it currently is
-						signal.setNextSignalValue(signal.getSignalValue());
-					}
-					refreshTicks--;
-					markDirty();
-				}
+	/**
+	 * Advances the refresh cycle given this tick's input. Doesn't touch the world, so compiled circuits call it too.
+	 */
+	public void step(int sig) {
+		if (sig != signal.getSignalValue()) {
+			//in and out signals are different, check if it's in the middle of a refresh cycle
+			if (refreshTicks <= 0) {
+				//refresh cycle ended, set signal and grab next signal
+				signal.setNextSignalValue(sigToWrite);
+				sigToWrite = sig;
+				refreshTicks = maxRefreshTicks;
+			} else {
+				//in the middle of a cycle, keep at what it currently is
+				signal.setNextSignalValue(signal.getSignalValue());
 			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
+			refreshTicks--;
 			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
 		}
 	}
 
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
+
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof OscillatorBlock)) return false;
+		return node.define(Netlist.OSCILLATOR, 0, signal, null, state.get(OscillatorBlock.FACING).getOpposite());
+	}
+
 	public void setDelay() {
 		if (maxRefreshTicks >= 100) maxRefreshTicks = 100;
 		if (maxRefreshTicks < 1) maxRefreshTicks = 1;
 		refreshTicks = maxRefreshTicks;
+		settingsChanged();
 		markDirty();
 	}
 
@@ -104,33 +109,41 @@ public class OscillatorBlockEntity extends IRComponentBlockEntity implements Tic
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive || firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastActive != active || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.OSCILLATOR);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return maxRefreshTicks;
+			default: return 0;
+		}
+	}
 
-			if (firstTick) firstTick = false;
-			lastActive = active;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: maxRefreshTicks = value; break;
 		}
 	}
 
+	@Override
+	protected void collectSaveState() {
+		super.collectSaveState();
+		saveValue(sigToWrite);
+		saveValue(refreshTicks);
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof OscillatorBlock) ? state.get(OscillatorBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
@@ -6,84 +6,82 @@ import com.elytradev.infraredstone.api.MultimeterProbeProvider;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.ShifterBlock;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
 import com.elytradev.infraredstone.util.enums.ShifterSelection;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class ShifterBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class ShifterBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	private InfraRedstoneHandler eject = new InfraRedstoneHandler();
 	public ShifterSelection selection = ShifterSelection.LEFT;
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-	boolean lastEject = false;
-	ShifterSelection lastSelection = ShifterSelection.LEFT;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, eject, selection. */
+	private static final int[] SYNC_FIELD_BITS = { 6, 6, 1 };
+	/** Sync fields that are settings: the selection. */
+	private static final int SETTING_FIELDS = 1 << 2;
 
 	public ShifterBlockEntity() {
 		super(ModBlocks.SHIFTER_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
-			markDirty();
-		}
-		if (world.isClient || !hasWorld()) return;
-
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
 		BlockState state = world.getBlockState(this.getPos());
-
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof ShifterBlock) {
-				Direction back = state.get(ShifterBlock.FACING).getOpposite();
-				int sig = InRedLogic.findIRValue(world, pos, back);
-				int ej = 0;
-
-				if (selection == ShifterSelection.LEFT) {
-					ej = (sig & 0b10_0000);
-					ej = (ej != 0) ? 1 : 0;
-					sig <<= 1;
-					sig &= 0b011_1111;
-				} else {
-					ej = (sig & 0b00_0001);
-					ej = (ej != 0) ? 1 : 0;
-					sig >>>= 1;
-					sig &= 0b011_1111;
-				}
-
-				signal.setNextSignalValue(sig);
-				eject.setNextSignalValue(ej);
-				markDirty();
+		if (state.getBlock() instanceof ShifterBlock) {
+			Direction back = state.get(ShifterBlock.FACING).getOpposite();
+			int sig = InRedLogic.findIRValue(world, pos, back);
+			int input = sig;
+			int ej = 0;
+
+			if (selection == ShifterSelection.LEFT) {
+				ej = (sig & 0b10_0000);
+				ej = (ej != 0) ? 1 : 0;
+				sig <<= 1;
+				sig &= 0b011_1111;
+			} else {
+				ej = (sig & 0b00_0001);
+				ej = (ej != 0) ? 1 : 0;
+				sig >>>= 1;
+				sig &= 0b011_1111;
 			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
-			eject.setSignalValue(eject.getNextSignalValue());
+
+			signal.setNextSignalValue(sig);
+			eject.setNextSignalValue(ej);
+			settle(input, signal.getNextSignalValue() == signal.getSignalValue() && eject.getNextSignalValue() == eject.getSignalValue());
 			markDirty();
 		}
 	}
 
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
+
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal, eject };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof ShifterBlock)) return false;
+		return node.define(Netlist.SHIFTER, selection.ordinal(), signal, eject, state.get(ShifterBlock.FACING).getOpposite());
+	}
+
 	public void toggleSelection() {
 		if (selection == ShifterSelection.LEFT) {
 			selection = ShifterSelection.RIGHT;
@@ -94,6 +92,8 @@ public class ShifterBlockEntity extends IRComponentBlockEntity implements Tickab
 		}
 		eject.setNextSignalValue(0);
 		eject.setSignalValue(0);
+		settingsChanged();
+		wakeReaders();
 		markDirty();
 	}
 
@@ -115,42 +115,41 @@ public class ShifterBlockEntity extends IRComponentBlockEntity implements Tickab
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		boolean eject = isEject();
-		if (active != lastActive
-				|| lastEject != eject
-				|| lastSelection != selection
-				|| firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastSelection != selection || firstTick) {
-				world.updateNeighborsAlways(pos.offset(Direction.UP), ModBlocks.SHIFTER);
-			}
-			if (lastActive != active || lastEject != eject || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.SHIFTER);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return eject.getSignalValue();
+			case 2: return selection.ordinal();
+			default: return 0;
+		}
+	}
 
-			lastSelection = selection;
-			lastActive = isActive();
-			lastEject = isEject();
-			if (firstTick) firstTick = false;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: eject.setSignalValue(value); break;
+			case 2: selection = ShifterSelection.fromOrdinal(value); break;
 		}
 	}
 
+	@Override
+	protected int getSettingFields() {
+		return SETTING_FIELDS;
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof ShifterBlock) ? state.get(ShifterBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
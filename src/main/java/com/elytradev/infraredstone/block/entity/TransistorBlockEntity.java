@@ -6,65 +6,64 @@ import com.elytradev.infraredstone.api.MultimeterProbeProvider;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.TransistorBlock;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class TransistorBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class TransistorBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal. */
+	private static final int[] SYNC_FIELD_BITS = { 6 };
 
 	public TransistorBlockEntity() {
 		super(ModBlocks.TRANSISTOR_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
+		BlockState state = world.getBlockState(this.getPos());
+		if (state.getBlock() instanceof TransistorBlock) {
+			Direction back = state.get(TransistorBlock.FACING).getOpposite();
+			Direction left = state.get(TransistorBlock.FACING).rotateYCounterclockwise();
+			Direction right = state.get(TransistorBlock.FACING).rotateYClockwise();
+			int[] inputs = InRedLogic.findIRValues(world, pos, back, left, right);
+			int sigBack = inputs[0];
+			int sigLeft = inputs[1];
+			int sigRight = inputs[2];
+			if (sigBack > 0 && (sigLeft > 0 || sigRight > 0)) signal.setNextSignalValue(sigBack);
+			else signal.setNextSignalValue(0);
+			settle(sigBack | sigLeft << 6 | sigRight << 12, signal.getNextSignalValue() == signal.getSignalValue());
 			markDirty();
 		}
-		if (world.isClient || !hasWorld()) return;
+	}
 
-		BlockState state = world.getBlockState(this.getPos());
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
 
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof TransistorBlock) {
-				Direction back = state.get(TransistorBlock.FACING).getOpposite();
-				Direction left = state.get(TransistorBlock.FACING).rotateYCounterclockwise();
-				Direction right = state.get(TransistorBlock.FACING).rotateYClockwise();
-				int sigBack = InRedLogic.findIRValue(world, pos, back);
-				int sigLeft = InRedLogic.findIRValue(world, pos, left);
-				int sigRight = InRedLogic.findIRValue(world, pos, right);
-				if (sigBack > 0 && (sigLeft > 0 || sigRight > 0)) signal.setNextSignalValue(sigBack);
-				else signal.setNextSignalValue(0);
-				markDirty();
-			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
-			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
-		}
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof TransistorBlock)) return false;
+		Direction facing = state.get(TransistorBlock.FACING);
+		return node.define(Netlist.TRANSISTOR, 0, signal, null, facing.getOpposite(), facing.rotateYCounterclockwise(), facing.rotateYClockwise());
 	}
 
 	@Override
@@ -81,33 +80,32 @@ public class TransistorBlockEntity extends IRComponentBlockEntity implements Tic
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive || firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastActive != active || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.TRANSISTOR);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			default: return 0;
+		}
+	}
 
-			if (firstTick) firstTick = false;
-			lastActive = active;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
 		}
 	}
 
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof TransistorBlock) ? state.get(TransistorBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
@@ -7,84 +7,89 @@ import com.elytradev.infraredstone.block.AndGateBlock;
 import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.XorGateBlock;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRModule;
+import com.elytradev.infraredstone.logic.engine.Netlist;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
 import com.elytradev.infraredstone.logic.impl.InfraRedstoneSerializer;
-import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
-import com.google.common.base.Predicates;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.StringTextComponent;
 import net.minecraft.text.TranslatableTextComponent;
-import net.minecraft.util.Tickable;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.chunk.Chunk;
 
-public class XorGateBlockEntity extends IRComponentBlockEntity implements Tickable, MultimeterProbeProvider, InfraRedstoneCapable {
+public class XorGateBlockEntity extends IRComponentBlockEntity implements IRModule, MultimeterProbeProvider, InfraRedstoneCapable {
 
 	private InfraRedstoneHandler signal = new InfraRedstoneHandler();
 	private int valLeft;
 	private int valRight;
 	public boolean booleanMode;
 
-	//Transient data to throttle sync down here
-	boolean lastActive = false;
-	int lastValLeft = 0;
-	int lastValRight = 0;
-	boolean lastBooleanMode = false;
-
-	@Environment(EnvType.CLIENT)
-	boolean firstTick = true;
+	/** Sync field widths: signal, boolean mode, left, right. */
+	private static final int[] SYNC_FIELD_BITS = { 6, 1, 6, 6 };
+	/** Sync fields that are settings: the boolean mode. */
+	private static final int SETTING_FIELDS = 1 << 1;
 
 	public XorGateBlockEntity() {
 		super(ModBlocks.XOR_GATE_BE);
 	}
 
 	@Override
-	public void tick() {
-		if (world.isClient && firstTick) {
-			InfraRedstoneNetworking.requestModule(this);
-			markDirty();
-		}
-		if (world.isClient || !hasWorld()) return;
-
+	public void computeNext() {
+		//IR tick means we're searching for a next value
+		if (skipTick()) return;
 		BlockState state = world.getBlockState(this.getPos());
-
-		if (InRedLogic.isIRTick()) {
-			//IR tick means we're searching for a next value
-			if (state.getBlock() instanceof XorGateBlock) {
-				Direction left = state.get(AndGateBlock.FACING).rotateYCounterclockwise();
-				Direction right = state.get(AndGateBlock.FACING).rotateYClockwise();
-				int sigLeft = InRedLogic.findIRValue(world, pos, left);
-				int sigRight = InRedLogic.findIRValue(world, pos, right);
-				valLeft = sigLeft;
-				valRight = sigRight;
-				if (!booleanMode) {
-					signal.setNextSignalValue(sigLeft ^ sigRight);
+		if (state.getBlock() instanceof XorGateBlock) {
+			Direction left = state.get(AndGateBlock.FACING).rotateYCounterclockwise();
+			Direction right = state.get(AndGateBlock.FACING).rotateYClockwise();
+			int[] inputs = InRedLogic.findIRValues(world, pos, left, right);
+			int sigLeft = inputs[0];
+			int sigRight = inputs[1];
+			valLeft = sigLeft;
+			valRight = sigRight;
+			if (!booleanMode) {
+				signal.setNextSignalValue(sigLeft ^ sigRight);
+			} else {
+				if (sigLeft > 0 && sigRight == 0) {
+					signal.setNextSignalValue(1);
+				} else if (sigLeft == 0 && sigRight > 0) {
+					signal.setNextSignalValue(1);
 				} else {
-					if (sigLeft > 0 && sigRight == 0) {
-						signal.setNextSignalValue(1);
-					} else if (sigLeft == 0 && sigRight > 0) {
-						signal.setNextSignalValue(1);
-					} else {
-						signal.setNextSignalValue(0);
-					}
+					signal.setNextSignalValue(0);
 				}
-				markDirty();
 			}
-		} else {
-			//Not an IR tick, so this is a "copy" tick. Adopt the previous tick's "next" value.
-			signal.setSignalValue(signal.getNextSignalValue());
+			settle(sigLeft | sigRight << 6, signal.getNextSignalValue() == signal.getSignalValue());
 			markDirty();
-			//setActive(state, signal.getSignalValue()!=0); //This is also when we light up
 		}
 	}
 
+	@Override
+	public void onSignalChanged() {
+		wakeReaders();
+		markDirty();
+	}
+
+	@Override
+	public InfraRedstoneHandler[] getHandlers() {
+		return new InfraRedstoneHandler[] { signal };
+	}
+
+	@Override
+	public boolean compile(Netlist.NodeBuilder node) {
+		BlockState state = world.getBlockState(pos);
+		if (!(state.getBlock() instanceof XorGateBlock)) return false;
+		Direction facing = state.get(XorGateBlock.FACING);
+		return node.define(Netlist.XOR, booleanMode ? 1 : 0, signal, null, facing.rotateYCounterclockwise(), facing.rotateYClockwise());
+	}
+
+	@Override
+	public void onInputsChanged(int[] inputs) {
+		valLeft = inputs[0];
+		valRight = inputs[1];
+		markDirty();
+	}
+
 	public void toggleBooleanMode() {
 		if (booleanMode) {
 			booleanMode = false;
@@ -93,6 +98,7 @@ public class XorGateBlockEntity extends IRComponentBlockEntity implements Tickab
 			booleanMode = true;
 			world.playSound(null, pos, SoundEvents.BLOCK_COMPARATOR_CLICK, SoundCategory.BLOCK, 0.3f, 0.55f);
 		}
+		settingsChanged();
 		markDirty();
 	}
 
@@ -116,43 +122,43 @@ public class XorGateBlockEntity extends IRComponentBlockEntity implements Tickab
 	}
 
 	@Override
-	public void markDirty() {
-		super.markDirty();
-		// again, I've copy-pasted this like 12 times, should probably go into Concrete
-		if (!hasWorld() || getWorld().isClient) return;
-		boolean active = isActive();
-		if (active != lastActive
-				|| lastValLeft != valLeft
-				|| lastValRight != valRight
-				|| lastBooleanMode != booleanMode
-				|| firstTick) { //Throttle updates - only send when something important changes
-
-			ServerWorld ws = (ServerWorld) getWorld();
-			Chunk c = getWorld().getChunk(getPos());
-			for (ServerPlayerEntity player : getWorld().getPlayers(ServerPlayerEntity.class, Predicates.alwaysTrue())) {
-				if (ws.getChunkManager().method_14154(player, c.getPos().x, c.getPos().z)) {
-					InfraRedstoneNetworking.syncModule(this, player);
-				}
-			}
+	public int[] getSyncFieldBits() {
+		return SYNC_FIELD_BITS;
+	}
 
-			if (lastBooleanMode != booleanMode || firstTick) {
-				world.updateNeighborsAlways(pos.offset(Direction.UP), ModBlocks.NOT_GATE);
-			}
-			if (lastActive != active || lastValLeft != valLeft || lastValRight != valRight || firstTick) {
-				//BlockState isn't changing, but we need to notify the block in front of us so that vanilla redstone updates
-				BlockState state = world.getBlockState(pos);
-				world.updateNeighborsAlways(pos, ModBlocks.NOT_GATE);
-				world.updateListeners(pos, state, state, 1);
-			}
+	@Override
+	public int getSyncField(int id) {
+		switch (id) {
+			case 0: return signal.getSignalValue();
+			case 1: return booleanMode ? 1 : 0;
+			case 2: return valLeft;
+			case 3: return valRight;
+			default: return 0;
+		}
+	}
 
-			lastBooleanMode = booleanMode;
-			lastActive = isActive();
-			lastValLeft = valLeft;
-			lastValRight = valRight;
-			if (firstTick) firstTick = false;
+	@Override
+	public void readSyncField(int id, int value) {
+		switch (id) {
+			case 0: signal.setSignalValue(value); break;
+			case 1: booleanMode = value != 0; break;
+			case 2: valLeft = value; break;
+			case 3: valRight = value; break;
 		}
 	}
 
+	@Override
+	protected int getSettingFields() {
+		return SETTING_FIELDS;
+	}
+
+	@Override
+	protected Direction getOutputSide() {
+		BlockState state = world.getBlockState(pos);
+		return (state.getBlock() instanceof XorGateBlock) ? state.get(XorGateBlock.FACING) : null;
+	}
+
+	@Override
 	public boolean isActive() {
 		return signal.getSignalValue() != 0;
 	}
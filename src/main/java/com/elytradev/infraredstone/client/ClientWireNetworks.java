@@ -0,0 +1,57 @@
+package com.elytradev.infraredstone.client;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The wire networks the server has told this client about, and the value on each, for drawing cables and overlays
+ * without searching the wires.
+ */
+public class ClientWireNetworks {
+	private static final Map<World, ClientWireNetworks> NETWORKS = new WeakHashMap<>();
+
+	private final Map<BlockPos, Integer> networkByWire = new HashMap<>();
+	private final Map<Integer, List<BlockPos>> wiresByNetwork = new HashMap<>();
+	private final Map<Integer, Integer> values = new HashMap<>();
+
+	public static ClientWireNetworks get(World world) {
+		return NETWORKS.computeIfAbsent(world, key -> new ClientWireNetworks());
+	}
+
+	/**
+	 * @return the value on the network the indicated wire is part of, or -1 if the server hasn't sent one.
+	 */
+	public int getValue(BlockPos wire) {
+		Integer network = networkByWire.get(wire);
+		if (network == null) return -1;
+		return values.getOrDefault(network, -1);
+	}
+
+	public void define(int id, int value, List<BlockPos> wires) {
+		remove(id);
+		wiresByNetwork.put(id, wires);
+		values.put(id, value);
+		for (BlockPos wire : wires) {
+			networkByWire.put(wire, id);
+		}
+	}
+
+	public void setValue(int id, int value) {
+		if (wiresByNetwork.containsKey(id)) values.put(id, value);
+	}
+
+	public void remove(int id) {
+		List<BlockPos> wires = wiresByNetwork.remove(id);
+		values.remove(id);
+		if (wires == null) return;
+		for (BlockPos wire : wires) {
+			//The wire may already belong to a newer network
+			if (networkByWire.get(wire) == id) networkByWire.remove(wire);
+		}
+	}
+}
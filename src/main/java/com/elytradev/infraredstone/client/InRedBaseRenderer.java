@@ -28,10 +28,12 @@ public abstract class InRedBaseRenderer<T extends IRComponentBlockEntity> extend
 		GlStateManager.blendFunc(GlStateManager.SrcBlendFactor.SRC_ALPHA, GlStateManager.DstBlendFactor.ONE_MINUS_SRC_ALPHA);
 		GlStateManager.disableLighting();
 		this.method_3570(true);
-		Sprite sprite = getLightupTexture((T) be);
+		//The server stops syncing modules that change too fast, and says so instead, so blink those on our own
+		boolean blinkedOff = OscillatingModules.isOscillating(be) && (be.getWorld().getTime() & 2) == 0;
+		Sprite sprite = (blinkedOff) ? null : getLightupTexture((T) be);
 		buffer.begin(GL11.GL_QUADS, VertexFormats.POSITION_UV_LMAP_COLOR); //position, texture, lightmap, color
 		if (sprite!=null) renderTopFace(buffer, sprite, getFacing((T)be));
-		if (torches != null && torches.length != 0) {
+		if (!blinkedOff && torches != null && torches.length != 0) {
 			for (Torch torch : torches) {
 				Sprite light = (torch.isLit) ? MinecraftClient.getInstance().getSpriteAtlas().getSprite("infraredstone:block/lights_glow") : null;
 				if (light != null) renderLight(buffer, light, torch.cornerX, torch.cornerZ, torch.isFullHeight, getFacing((T)be));
@@ -0,0 +1,28 @@
+package com.elytradev.infraredstone.client;
+
+import net.minecraft.block.entity.BlockEntity;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The modules the server says are changing faster than it syncs them, so their lights should be animated rather than
+ * trusted. Kept out here rather than on every module, since only the client needs it and only a few modules ever are.
+ * Modules drop out on their own once they're unloaded.
+ */
+public class OscillatingModules {
+	private static final Set<BlockEntity> MODULES = Collections.newSetFromMap(new WeakHashMap<>());
+
+	public static boolean isOscillating(BlockEntity module) {
+		return !MODULES.isEmpty() && MODULES.contains(module);
+	}
+
+	public static void setOscillating(BlockEntity module, boolean oscillating) {
+		if (oscillating) {
+			MODULES.add(module);
+		} else {
+			MODULES.remove(module);
+		}
+	}
+}
@@ -3,7 +3,10 @@ package com.elytradev.infraredstone.item;
 import com.elytradev.infraredstone.InfraRedstone;
 import com.elytradev.infraredstone.api.MultimeterProbeProvider;
 import com.elytradev.infraredstone.block.ModBlocks;
+import com.elytradev.infraredstone.client.ClientWireNetworks;
 import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.network.WireNetwork;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
 import net.minecraft.block.Block;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.entity.player.PlayerEntity;
@@ -32,15 +35,24 @@ public class MultimeterItem extends ItemBase {
 		String value;
 		TranslatableTextComponent i18n;
 		StringTextComponent message;
-		if (world.isClient) return ActionResult.PASS;
+		boolean isWire = block == ModBlocks.INFRA_REDSTONE || block == ModBlocks.IN_RED_SCAFFOLD;
+		if (world.isClient) {
+			// The server sends us the value of every wire network in view, so wires can be read without asking it.
+			int signal = isWire ? ClientWireNetworks.get(world).getValue(pos) : -1;
+			if (signal < 0) return ActionResult.PASS;
+			i18n = new TranslatableTextComponent("msg.inred.multimeter.cable");
+			player.addChatMessage(new StringTextComponent(i18n.getFormattedText()+format(signal)), true);
+			return ActionResult.SUCCESS;
+		}
 		if (be instanceof MultimeterProbeProvider) {
 			// Great! There's a provider for the BlockEntity here.
 			message = ((MultimeterProbeProvider)be).getProbeMessage();
-		} else if (block == ModBlocks.INFRA_REDSTONE || block == ModBlocks.IN_RED_SCAFFOLD) {
-			// One of our wires. Take a search in all directions and return the signal being passed through.
-			value = getWireValue(world, pos);
+		} else if (isWire) {
+			// One of our wires. Its network already knows the signal being passed through.
+			WireNetwork network = WireNetworkRegistry.get(world).getNetwork(pos);
+			network.prepare(world);
 			i18n = new TranslatableTextComponent("msg.inred.multimeter.cable");
-			message = new StringTextComponent(i18n.getFormattedText()+value);
+			message = new StringTextComponent(i18n.getFormattedText()+format(network.getTotal()));
 //        } else if (block == ModBlocks.DEVICE_LIQUID_CRYSTAL) {
 			// Liquid Crystal is not currently implemented, hopefully it'll be fixed sometime!
 //            value = getValue(world, pos, facing);
@@ -61,21 +73,10 @@ public class MultimeterItem extends ItemBase {
 	}
 
 	private String getValue(World world, BlockPos pos, Direction face) {
-		int signal = InRedLogic.findIRValue(world, pos, face.getOpposite());
-		int bit1 = ((signal & 0b00_0001) != 0) ? 1:0;
-		int bit2 = ((signal & 0b00_0010) != 0) ? 1:0;
-		int bit3 = ((signal & 0b00_0100) != 0) ? 1:0;
-		int bit4 = ((signal & 0b00_1000) != 0) ? 1:0;
-		int bit5 = ((signal & 0b01_0000) != 0) ? 1:0;
-		int bit6 = ((signal & 0b10_0000) != 0) ? 1:0;
-		return ": 0b"+bit6+bit5+"_"+bit4+bit3+bit2+bit1+" ("+signal+")";
+		return format(InRedLogic.findIRValue(world, pos, face.getOpposite()));
 	}
 
-	private String getWireValue(World world, BlockPos pos) {
-		int signal = 0;
-		for (Direction dir : Direction.values()) {
-			signal |= InRedLogic.findIRValue(world, pos, dir);
-		}
+	private String format(int signal) {
 		int bit1 = ((signal & 0b00_0001) != 0) ? 1:0;
 		int bit2 = ((signal & 0b00_0010) != 0) ? 1:0;
 		int bit3 = ((signal & 0b00_0100) != 0) ? 1:0;
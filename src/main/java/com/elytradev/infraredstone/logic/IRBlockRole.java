@@ -0,0 +1,82 @@
+package com.elytradev.infraredstone.logic;
+
+import com.elytradev.infraredstone.api.SimpleInfraRedstoneSignal;
+import com.elytradev.infraredstone.block.ModBlocks;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.registry.Registry;
+
+import java.util.Arrays;
+
+/**
+ * What part a block can play in an IR circuit, looked up by raw id so the hot paths don't have to chain
+ * {@code instanceof} checks or look for a block entity next to every wire.
+ */
+public enum IRBlockRole {
+	/** Our cable. */
+	WIRE,
+	/** Our scaffold; carries signal like a wire, but in every direction. */
+	SCAFFOLD,
+	/** A block that implements {@link SimpleInfraRedstoneSignal} itself. */
+	SIMPLE_SIGNAL,
+	/**
+	 * A block with a block entity, which might be {@link com.elytradev.infraredstone.api.InfraRedstoneCapable}.
+	 * The only role that's worth looking up the block entity for.
+	 */
+	CAPABLE_BE,
+	/** Can't take part in IR at all, like air or stone. */
+	NONE;
+
+	private static IRBlockRole[] roles = new IRBlockRole[0];
+
+	/**
+	 * Classifies every block registered so far. Blocks registered afterwards, by mods that load after us, are
+	 * classified the first time they're looked up.
+	 */
+	public static void rebuild() {
+		IRBlockRole[] table = new IRBlockRole[0];
+		for (Block block : Registry.BLOCK) {
+			int id = Registry.BLOCK.getRawId(block);
+			if (id >= table.length) table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+			table[id] = classify(block);
+		}
+		roles = table;
+	}
+
+	public static IRBlockRole of(BlockState state) {
+		return of(state.getBlock());
+	}
+
+	public static IRBlockRole of(Block block) {
+		IRBlockRole[] table = roles;
+		int id = Registry.BLOCK.getRawId(block);
+		if (id >= 0 && id < table.length) {
+			IRBlockRole role = table[id];
+			if (role != null) return role;
+		}
+		return classifyLate(block, id);
+	}
+
+	/** @return whether this is a wire or scaffold, which carry signal rather than making it. */
+	public boolean isWire() {
+		return this == WIRE || this == SCAFFOLD;
+	}
+
+	private static synchronized IRBlockRole classifyLate(Block block, int id) {
+		IRBlockRole role = classify(block);
+		if (id < 0) return role;
+		IRBlockRole[] table = roles;
+		if (id >= table.length) table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+		table[id] = role;
+		roles = table;
+		return role;
+	}
+
+	private static IRBlockRole classify(Block block) {
+		if (block == ModBlocks.INFRA_REDSTONE) return WIRE;
+		if (block == ModBlocks.IN_RED_SCAFFOLD) return SCAFFOLD;
+		if (block instanceof SimpleInfraRedstoneSignal) return SIMPLE_SIGNAL;
+		if (block.hasBlockEntity()) return CAPABLE_BE;
+		return NONE;
+	}
+}
@@ -1,16 +1,20 @@
 package com.elytradev.infraredstone.logic;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import com.elytradev.infraredstone.api.InfraRedstoneSignal;
 import com.elytradev.infraredstone.api.SimpleInfraRedstoneSignal;
 import com.elytradev.infraredstone.api.InfraRedstoneCapable;
+import com.elytradev.infraredstone.block.InfraRedstoneCable;
 import com.elytradev.infraredstone.block.ModBlocks;
-import com.google.common.base.Objects;
+import com.elytradev.infraredstone.logic.engine.IRScheduler;
+import com.elytradev.infraredstone.logic.engine.Netlist;
+import com.elytradev.infraredstone.logic.network.Endpoint;
+import com.elytradev.infraredstone.logic.network.WireNetwork;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import com.elytradev.infraredstone.logic.search.PackedPos;
+import com.elytradev.infraredstone.logic.search.SearchContext;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -18,21 +22,30 @@ import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.BlockView;
 import net.minecraft.world.World;
 public class InRedLogic {
-    private static final int INTER_IR_TICKS = 1;
-    public static int tickCount = 0;
-
-    public static Consumer<MinecraftServer> onServerTick = server -> {
-        tickCount++;
-        if (tickCount > INTER_IR_TICKS)
-            tickCount = 0;
-    };
+    public static Consumer<MinecraftServer> onServerTick = IRScheduler::advanceAll;
+    /** Ids for {@link #findIRValues} batches, so each network it reads is only prepared once per batch. */
+    private static final AtomicLong BATCHES = new AtomicLong();
 
+    /**
+     * @return whether this is an IR tick in the overworld, or false if no server is running.
+     * @deprecated each world has its own IR ticks now; use {@link #isIRTick(World)}.
+     */
+    @Deprecated
     public static boolean isIRTick() {
-        return (tickCount == 0);
+        IRScheduler overworld = IRScheduler.getOverworld();
+        return overworld != null && overworld.isIRTick();
+    }
+
+    /**
+     * @return whether this is an IR tick in the indicated server world. See {@link IRScheduler}.
+     */
+    public static boolean isIRTick(World world) {
+        return IRScheduler.get(world).isIRTick();
     }
-    
+
     /**
      * Searches for the highest IR signal which can be delivered to the indicated
      * block face.
@@ -48,6 +61,34 @@ public class InRedLogic {
      *         nothing is present.
      */
     public static int findIRValue(World world, BlockPos device, Direction dir) {
+        return findIRValue(world, device, dir, 0);
+    }
+
+    /**
+     * Searches for the IR signals delivered to several faces of one device at once. Faces that touch the same
+     * network share a single read of it.
+     *
+     * @param world
+     *            The world the device resides in
+     * @param device
+     *            The location of the device
+     * @param dirs
+     *            The directions *from* the device *towards* each input.
+     * @return The value for each direction, in the order given. See {@link #findIRValue}.
+     */
+    public static int[] findIRValues(World world, BlockPos device, Direction... dirs) {
+        int[] values = new int[dirs.length];
+        long batch = BATCHES.incrementAndGet();
+        for (int i = 0; i < dirs.length; i++) {
+            values[i] = findIRValue(world, device, dirs[i], batch);
+        }
+        return values;
+    }
+
+    /**
+     * @param batch the id of the batch this lookup is part of, or 0 for a single lookup.
+     */
+    private static int findIRValue(World world, BlockPos device, Direction dir, long batch) {
         BlockPos initialPos = device.offset(dir);
 
         if (!checkCandidacy(world, initialPos, dir.getOpposite())) {
@@ -64,14 +105,16 @@ public class InRedLogic {
             }
         }
         
-        if (world.isAir(initialPos)) return 0;
         BlockState initialState = world.getBlockState(initialPos);
-        if (initialState.getBlock() == ModBlocks.INFRA_REDSTONE || initialState.getBlock() == ModBlocks.IN_RED_SCAFFOLD) {
-            // Search!
-            return wireSearch(world, device, dir);
+        IRBlockRole role = IRBlockRole.of(initialState);
+        if (role == IRBlockRole.NONE) return 0;
+        if (role.isWire()) {
+            // Search! Servers keep their networks around, so only the client has to walk the wires every time.
+            if (world.isClient) return wireSearch(world, device, dir);
+            return networkSearch(world, device, dir, batch);
         }
         
-        if (initialState.getBlock() instanceof SimpleInfraRedstoneSignal) {
+        if (role == IRBlockRole.SIMPLE_SIGNAL) {
             // We have a simple IR block behind us. Excellent! Don't search, just get its
             // value.
             return ((SimpleInfraRedstoneSignal) initialState.getBlock()).getSignalValue(world, initialPos, initialState, dir.getOpposite());
@@ -90,16 +133,100 @@ public class InRedLogic {
         return (world.getEmittedRedstonePower(initialPos, dir) != 0) ? 1 : 0;
     }
 
-    public static boolean checkCandidacy(World world, BlockPos pos, Direction side) {
-        if (world.isAir(pos)) return false;
-        
-        BlockState state = world.getBlockState(pos);
-        if (state.getBlock() == ModBlocks.INFRA_REDSTONE || state.getBlock() == ModBlocks.IN_RED_SCAFFOLD) return true;
-        if (state.getBlock() instanceof SimpleInfraRedstoneSignal) return true;
-        
+    /**
+     * Works out what the value {@link #findIRValue} would return is made of, so a circuit can be compiled: the signal
+     * handlers it reads, plus any bits that can only change along with the blocks around the device, like a vanilla
+     * redstone input.
+     *
+     * @param sources
+     *            Receives the handlers, the constant bits, and every position the value depends on.
+     * @return false if the value can't be described this way, for instance because it comes from a third-party
+     *         signal block, or from a network too big to read exactly.
+     */
+    public static boolean collectIRSources(World world, BlockPos device, Direction dir, Netlist.Sources sources) {
+        BlockPos initialPos = device.offset(dir);
+        sources.touch(initialPos.up());
+        sources.touch(initialPos.down());
+
+        if (!checkCandidacy(world, initialPos, dir.getOpposite())) {
+            BlockPos up = initialPos.up();
+            if (checkCandidacy(world, up, dir.getOpposite())) {
+                initialPos = up;
+            } else {
+                BlockPos down = initialPos.down();
+                if (checkCandidacy(world, down, dir.getOpposite())) {
+                    initialPos = down;
+                } else {
+                    sources.constant((world.getEmittedRedstonePower(initialPos, dir) != 0) ? 1 : 0);
+                    return true;
+                }
+            }
+        }
+
+        IRBlockRole role = IRBlockRole.of(world.getBlockState(initialPos));
+        if (role == IRBlockRole.NONE) return true;
+        if (role.isWire()) {
+            WireNetworkRegistry registry = WireNetworkRegistry.get(world);
+            Endpoint reader = new Endpoint(device, dir);
+            BlockPos start = device.offset(dir);
+            if (!collectNetworkOrEndpoint(world, registry, start, dir.getOpposite(), reader, sources)) return false;
+            if (device.getY() > 0 && !isSideSolid(world, start, dir.getOpposite())) {
+                return collectNetworkOrEndpoint(world, registry, start.down(), dir.getOpposite(), reader, sources);
+            }
+            return true;
+        }
+
+        if (role == IRBlockRole.SIMPLE_SIGNAL) return false;
+
+        BlockEntity be = world.getBlockEntity(initialPos);
+        if (be instanceof InfraRedstoneCapable && ((InfraRedstoneCapable)be).canConnectToSide(dir.getOpposite())) {
+            return sources.signal(((InfraRedstoneCapable)be).getInfraRedstoneHandler(dir.getOpposite()));
+        }
+
+        sources.constant((world.getEmittedRedstonePower(initialPos, dir) != 0) ? 1 : 0);
+        return true;
+    }
+
+    /**
+     * Same as {@link #readNetworkOrEndpoint}, but collects sources instead of reading values.
+     */
+    private static boolean collectNetworkOrEndpoint(World world, WireNetworkRegistry registry, BlockPos pos, Direction facing, Endpoint reader, Netlist.Sources sources) {
+        if (IRBlockRole.of(world.getBlockState(pos)).isWire()) {
+            WireNetwork network = registry.getNetwork(pos);
+            if (!network.isInRange()) return false;
+            for (BlockPos wire : network.getWires()) {
+                sources.touch(wire);
+            }
+            for (Endpoint endpoint : network.getEndpoints()) {
+                if (endpoint.equals(reader)) continue;
+                sources.touch(endpoint.pos);
+                if (!collectDirectSources(world, endpoint.pos, endpoint.facing, sources)) return false;
+            }
+            return true;
+        }
+        return collectDirectSources(world, pos, facing, sources);
+    }
+
+    /**
+     * Same as {@link #valueDirectlyAt}, but collects sources instead of reading values.
+     */
+    private static boolean collectDirectSources(World world, BlockPos pos, Direction dir, Netlist.Sources sources) {
+        IRBlockRole role = IRBlockRole.of(world.getBlockState(pos));
+        if (role == IRBlockRole.SIMPLE_SIGNAL) return false;
+        if (role != IRBlockRole.CAPABLE_BE) return true;
         BlockEntity be = world.getBlockEntity(pos);
-        if (be == null) return false;
+        if (be instanceof InfraRedstoneCapable && ((InfraRedstoneCapable)be).canConnectToSide(dir)) {
+            return sources.signal(((InfraRedstoneCapable)be).getInfraRedstoneHandler(dir));
+        }
+        return true;
+    }
 
+    public static boolean checkCandidacy(World world, BlockPos pos, Direction side) {
+        IRBlockRole role = IRBlockRole.of(world.getBlockState(pos));
+        if (role == IRBlockRole.NONE) return false;
+        if (role != IRBlockRole.CAPABLE_BE) return true;
+
+        BlockEntity be = world.getBlockEntity(pos);
         if (be instanceof InfraRedstoneCapable) {
             return (((InfraRedstoneCapable) be).canConnectToSide(side));
         } else {
@@ -110,93 +237,148 @@ public class InRedLogic {
     private static final Direction[] PLANAR_FACINGS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
 
     public static boolean isSideSolid(World world, BlockPos pos, Direction dir) {
-        return Block.isFaceFullCube(world.getBlockState(pos).getBoundingShape(world, pos), dir);
+        return isSideSolid(world, pos, world.getBlockState(pos), dir);
     }
 
-    private static int wireSearch(World world, BlockPos device, Direction dir) {
-        int depth = 0;
-        Set<Endpoint> rejected = new HashSet<Endpoint>();
-        Set<BlockPos> traversed = new HashSet<BlockPos>();
-        List<Endpoint> members = new ArrayList<>();
-        List<Endpoint> queue = new ArrayList<>();
-        List<Endpoint> next = new ArrayList<>();
+    /**
+     * @param state the state at {@code pos}, if the caller already has it.
+     */
+    public static boolean isSideSolid(BlockView world, BlockPos pos, BlockState state, Direction dir) {
+        // Cables are everywhere a search goes, and their shapes are all known ahead of time
+        if (state.getBlock() == ModBlocks.INFRA_REDSTONE) return InfraRedstoneCable.isSideSolid(state, dir);
+        return Block.isFaceFullCube(state.getBoundingShape(world, pos), dir);
+    }
+
+    /**
+     * Same result as {@link #wireSearch}, but reads from the world's cached {@link WireNetwork}s instead of
+     * walking the wires.
+     */
+    private static int networkSearch(World world, BlockPos device, Direction dir, long batch) {
+        WireNetworkRegistry registry = WireNetworkRegistry.get(world);
+        Endpoint reader = new Endpoint(device, dir);
+        BlockPos initialPos = device.offset(dir);
+        int result = readNetworkOrEndpoint(world, registry, initialPos, dir.getOpposite(), reader, batch);
+        if (result < 0) return wireSearch(world, device, dir);
+
+        if (device.getY() > 0 && !isSideSolid(world, initialPos, dir.getOpposite())) {
+            int below = readNetworkOrEndpoint(world, registry, initialPos.down(), dir.getOpposite(), reader, batch);
+            if (below < 0) return wireSearch(world, device, dir);
+            result |= below;
+        }
+        return result;
+    }
+
+    /**
+     * @return the value of the network at {@code pos} if it's a wire, or the value of {@code pos} itself if it isn't,
+     * or -1 if the network is too big to answer for this reader.
+     */
+    private static int readNetworkOrEndpoint(World world, WireNetworkRegistry registry, BlockPos pos, Direction facing, Endpoint reader, long batch) {
+        if (IRBlockRole.of(world.getBlockState(pos)).isWire()) {
+            WireNetwork network = registry.getNetwork(pos);
+            if (!network.isInRange()) return -1;
+            if (batch == 0) return network.getValue(world, reader);
+            network.prepare(world, batch);
+            return network.valueFor(reader);
+        }
+        Integer rightHere = valueDirectlyAt(world, pos, facing);
+        return (rightHere != null) ? rightHere : 0;
+    }
 
-        queue.add(new Endpoint(device.offset(dir), dir.getOpposite()));
+    /**
+     * Walks the wires from the indicated device face and grabs the bitwise OR of every signal on them. Positions are
+     * tracked as packed longs in a reusable {@link SearchContext}, so a search doesn't allocate once it's warmed up.
+     */
+    private static int wireSearch(World world, BlockPos device, Direction dir) {
+        SearchContext ctx = SearchContext.acquire(world);
+        try {
+            return wireSearch(world, device, dir, ctx);
+        } finally {
+            ctx.release();
+        }
+    }
 
-        if (Block.isFaceFullCube(world.getBlockState(device.offset(Direction.UP)).getBoundingShape(world, device.offset(Direction.UP)), Direction.DOWN))
+    private static int wireSearch(World world, BlockPos device, Direction dir, SearchContext ctx) {
+        int depth = 0;
+        int result = 0;
+        int startX = device.getX() + PackedPos.offsetX(dir);
+        int startY = device.getY();
+        int startZ = device.getZ() + PackedPos.offsetZ(dir);
 
-        if (device.getY() < 255 && !isSideSolid(world, device.offset(Direction.UP), Direction.DOWN)) queue.add(new Endpoint(device.offset(dir).up(), dir.getOpposite()));
-        if (device.getY() > 0 && !isSideSolid(world, device.offset(dir), dir.getOpposite())) queue.add(new Endpoint(device.offset(dir).down(), dir.getOpposite()));
+        ctx.queue.add(PackedPos.pack(startX, startY, startZ, dir.getOpposite()));
+        if (device.getY() > 0 && !ctx.blocks.isSideSolid(startX, startY, startZ, dir.getOpposite())) ctx.queue.add(PackedPos.pack(startX, startY - 1, startZ, dir.getOpposite()));
 
-        while (!queue.isEmpty() || !next.isEmpty()) {
-            if (queue.isEmpty()) {
+        int layer = ctx.queue.size();
+        while (!ctx.queue.isEmpty()) {
+            if (layer == 0) {
                 depth++;
                 if (depth > 63) return 0; // We've searched too far, there's no signal in range.
-                queue.addAll(next);
-                next.clear();
+                layer = ctx.queue.size();
             }
 
-            Endpoint cur = queue.remove(0);
+            long cur = ctx.queue.remove();
+            layer--;
+            int x = PackedPos.getX(cur);
+            int y = PackedPos.getY(cur);
+            int z = PackedPos.getZ(cur);
+            Direction curFacing = PackedPos.getFacing(cur);
+            BlockState state = ctx.blocks.getBlockState(x, y, z);
+            IRBlockRole role = IRBlockRole.of(state);
+            if (role == IRBlockRole.NONE) continue;
+            if (role.isWire()) {
+                if (!ctx.traversed.add(PackedPos.positionOf(cur))) continue; // Already walked this one
 
-            if (world.isAir(cur.pos)) continue;
-            BlockState state = world.getBlockState(cur.pos);
-
-            Block block = state.getBlock();
-            if (block == ModBlocks.INFRA_REDSTONE || block == ModBlocks.IN_RED_SCAFFOLD) {
-                traversed.add(cur.pos);
-
-                if (block == ModBlocks.INFRA_REDSTONE) {
+                if (role == IRBlockRole.WIRE) {
                     // Add neighbors
+                    boolean upBlocked = ctx.blocks.isSideSolid(x, y + 1, z, Direction.DOWN);
                     for (Direction facing : PLANAR_FACINGS) {
-                        BlockPos offset = cur.pos.offset(facing);
+                        int offsetX = x + PackedPos.offsetX(facing);
+                        int offsetZ = z + PackedPos.offsetZ(facing);
 
-                        if (offset.getY() < 255 && !isSideSolid(world, cur.pos.up(), Direction.DOWN)) checkAdd(new Endpoint(offset.up(), facing.getOpposite()), next, traversed, rejected);
-                        if (offset.getY() > 0 && !isSideSolid(world, offset, facing.getOpposite())) checkAdd(new Endpoint(offset.down(), facing.getOpposite()), next, traversed, rejected);
-                        if (facing == cur.facing) continue; // Don't try to bounce back to the block we came from
-                        checkAdd(new Endpoint(offset, facing.getOpposite()), next, traversed, rejected);
+                        if (y < 255 && !upBlocked) checkAdd(ctx, offsetX, y + 1, offsetZ, facing.getOpposite());
+                        if (y > 0 && !ctx.blocks.isSideSolid(offsetX, y, offsetZ, facing.getOpposite())) checkAdd(ctx, offsetX, y - 1, offsetZ, facing.getOpposite());
+                        if (facing == curFacing) continue; // Don't try to bounce back to the block we came from
+                        checkAdd(ctx, offsetX, y, offsetZ, facing.getOpposite());
                     }
-                } else if (block == ModBlocks.IN_RED_SCAFFOLD) {
-                    for(Direction facing : Direction.values()) {
-                        BlockPos offset = cur.pos.offset(facing);
-                        if (offset.getY()<0 || offset.getY()>255) continue;
-                        checkAdd(new Endpoint(offset, facing.getOpposite()), next, traversed, rejected);
+                } else {
+                    for (Direction facing : PackedPos.DIRECTIONS) {
+                        int offsetY = y + PackedPos.offsetY(facing);
+                        if (offsetY < 0 || offsetY > 255) continue;
+                        checkAdd(ctx, x + PackedPos.offsetX(facing), offsetY, z + PackedPos.offsetZ(facing), facing.getOpposite());
                     }
                 }
-                
+
                 continue;
             }
-            
-            Integer rightHere = valueDirectlyAt(world, cur.pos, cur.facing);
+
+            Integer rightHere = valueDirectlyAt(world, ctx.cursor.set(x, y, z), state, role, curFacing);
             if (rightHere != null) {
-                members.add(cur);
-                rejected.add(cur);
-                continue;
+                // Grab the bitwise OR of all signals as we go
+                result |= rightHere;
+                ctx.rejected.add(cur);
             }
         }
 
-        // Grab the bitwise OR of all signals
-        int result = 0;
-        for (Endpoint cur : members) {
-            int val = valueDirectlyAt(world, cur.pos, cur.facing);
-            result |= val;
-        }
         return result;
     }
 
-    private static void checkAdd(Endpoint endpoint, List<Endpoint> next, Set<BlockPos> traversed, Set<Endpoint> rejected) {
-        if (traversed.contains(endpoint.pos)) return;
-        if (rejected.contains(endpoint)) return;
-        next.add(endpoint);
+    private static void checkAdd(SearchContext ctx, int x, int y, int z, Direction facing) {
+        long endpoint = PackedPos.pack(x, y, z, facing);
+        if (ctx.traversed.contains(PackedPos.positionOf(endpoint))) return;
+        if (ctx.rejected.contains(endpoint)) return;
+        ctx.queue.add(endpoint);
     }
 
     public static Integer valueDirectlyAt(World world, BlockPos pos, Direction dir) {
-        if (world.isAir(pos)) return null;
         BlockState state = world.getBlockState(pos);
-        Block block = state.getBlock();
-        if (block == ModBlocks.INFRA_REDSTONE || block == ModBlocks.IN_RED_SCAFFOLD) return null; // wires don't carry power directly
-        if (block instanceof SimpleInfraRedstoneSignal) {
-            return ((SimpleInfraRedstoneSignal)block).getSignalValue(world, pos, state, dir);
+        return valueDirectlyAt(world, pos, state, IRBlockRole.of(state), dir);
+    }
+
+    private static Integer valueDirectlyAt(World world, BlockPos pos, BlockState state, IRBlockRole role, Direction dir) {
+        if (role == IRBlockRole.SIMPLE_SIGNAL) {
+            return ((SimpleInfraRedstoneSignal)state.getBlock()).getSignalValue(world, pos, state, dir);
         }
+        // wires don't carry power directly, and nothing else without a block entity can either
+        if (role != IRBlockRole.CAPABLE_BE) return null;
         BlockEntity be = world.getBlockEntity(pos);
         if (be instanceof InfraRedstoneCapable && ((InfraRedstoneCapable)be).canConnectToSide(dir)) {
             return ((InfraRedstoneCapable)be).getInfraRedstoneHandler(dir).getSignalValue();
@@ -204,33 +386,4 @@ public class InRedLogic {
 //        if (world.getEmittedRedstonePower(pos, dir) != 0) return 1; TODO: maybe have this? maybe not
         return null;
     }
-
-    private static class Endpoint {
-        BlockPos pos;
-        Direction facing;
-        
-        public Endpoint(BlockPos pos, Direction facing) {
-            this.pos = pos;
-            this.facing = facing;
-        }
-        
-        @Override
-        public int hashCode() {
-            return Objects.hashCode(pos, facing);
-        }
-        
-        @Override
-        public boolean equals(Object other) {
-            if (other == null) return false;
-            if (!(other instanceof Endpoint)) return false;
-            Endpoint otherEnd = (Endpoint) other;
-            return Objects.equal(pos, otherEnd.pos) && Objects.equal(facing, otherEnd.facing);
-        }
-        
-        @Override
-        public String toString() {
-            return "{x:" + pos.getX() + ", y:" + pos.getY() + ", z:" + pos.getZ() + ", dir:" + facing + "}";
-        }
-        
-    }
 }
@@ -0,0 +1,398 @@
+package com.elytradev.infraredstone.logic.engine;
+
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
+import com.elytradev.infraredstone.logic.search.PackedPos;
+import com.elytradev.infraredstone.util.InfraRedstoneConfig;
+import com.elytradev.infraredstone.util.PerWorld;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Ticks every loaded {@link IRModule} in a server world: all of them compute on IR ticks, as one flat loop instead of
+ * one vanilla block entity tick per module, and a copy tick adopts all of their next values at once with a single
+ * {@link SignalStore} swap.
+ * <p>
+ * With {@link InfraRedstoneConfig#compiledCircuits} on, modules that can be are also compiled into {@link Netlist}s,
+ * which are evaluated instead of their own {@link IRModule#computeNext}. A circuit is dropped and recompiled whenever
+ * something changes inside its bounds. With {@link InfraRedstoneConfig#parallelCircuits} on as well, circuits are
+ * computed on a thread pool; they only read the store's current values, which nothing writes until they're done, and
+ * their results are applied back on the server thread.
+ */
+public class IREngine {
+	private static final PerWorld<IREngine> ENGINES = PerWorld.create("IR modules are only ticked on the server", IREngine::new);
+	/** How many circuits a parallel task computes by itself rather than splitting further. */
+	private static final int CIRCUITS_PER_TASK = 8;
+	/** How often, in server ticks, to drop the chunks that have unloaded from the chunk index. */
+	private static final int CHUNK_PRUNE_INTERVAL = 20;
+	/** Shared by every world of the running server. Made on first use, so it picks up the config as of then. */
+	private static ForkJoinPool pool;
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (IREngine engine : ENGINES.values()) {
+			engine.tick();
+		}
+	};
+
+	static {
+		//Don't leave the threads running after the server, or keep an old thread count into the next one
+		PerWorld.addStopListener(server -> {
+			if (pool == null) return;
+			pool.shutdown();
+			pool = null;
+		});
+	}
+
+	private final World world;
+	private final List<IRComponentBlockEntity> modules = new ArrayList<>();
+	private final Map<BlockPos, IRComponentBlockEntity> byPos = new HashMap<>();
+	private final Long2ObjectOpenHashMap<List<IRComponentBlockEntity>> byChunk = new Long2ObjectOpenHashMap<>();
+	private final SignalStore<IRComponentBlockEntity> signals = new SignalStore<>();
+	private boolean needsSweep;
+	private final BlockPos.Mutable chunkProbe = new BlockPos.Mutable();
+	/** Modules whose redstone output changed, with a mask of the sides to notify, sent once at the end of the tick. */
+	private final Map<BlockPos, Integer> outputUpdates = new LinkedHashMap<>();
+	/** Modules whose settings changed, to update the blocks above once at the end of the tick. */
+	private final Set<BlockPos> settingsUpdates = new LinkedHashSet<>();
+
+	private final List<Netlist> circuits = new ArrayList<>();
+	/** Every circuit, listed under each chunk its bounds reach into. */
+	private final Long2ObjectOpenHashMap<List<Netlist>> circuitsByChunk = new Long2ObjectOpenHashMap<>();
+	/** Modules to try compiling on the next IR tick. */
+	private final Set<IRComponentBlockEntity> pendingCompile = new LinkedHashSet<>();
+	/** Modules that couldn't be compiled last time. Some only need a module that wasn't loaded yet, so they're retried. */
+	private final Set<IRComponentBlockEntity> uncompiled = new LinkedHashSet<>();
+
+	//A module's handlers are normally set back to back, so this skips most repeat calls for the same module
+	private IRComponentBlockEntity lastChanged;
+	private final IntConsumer onSlotChanged = slot -> {
+		IRComponentBlockEntity module = signals.getOwner(slot);
+		if (module == lastChanged || !isLive(module)) return;
+		lastChanged = module;
+		((IRModule)module).onSignalChanged();
+	};
+
+	private IREngine(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * @return the engine for a server world. Modules don't tick on the client.
+	 */
+	public static IREngine get(World world) {
+		return ENGINES.get(world);
+	}
+
+	/**
+	 * Starts ticking a module. Called when its block entity is validated; it's dropped again once it's invalidated,
+	 * unloaded, or replaced by another block entity at the same position.
+	 */
+	public <T extends IRComponentBlockEntity & IRModule> void add(T module) {
+		IRComponentBlockEntity old = byPos.put(module.getPos().toImmutable(), module);
+		if (old == module) return;
+		if (old != null) needsSweep = true;
+		modules.add(module);
+		byChunk.computeIfAbsent(chunkKey(module.getPos()), key -> new ArrayList<>()).add(module);
+		for (InfraRedstoneHandler handler : module.getHandlers()) {
+			handler.bind(signals, signals.allocate(module));
+		}
+		invalidateCircuits(module.getPos());
+		if (isCompiling()) {
+			pendingCompile.add(module);
+			pendingCompile.addAll(uncompiled);
+			uncompiled.clear();
+		}
+	}
+
+	/**
+	 * Stops ticking a module.
+	 */
+	public void remove(IRComponentBlockEntity module) {
+		if (byPos.get(module.getPos()) == module) byPos.remove(module.getPos());
+		needsSweep = true;
+		invalidateCircuits(module.getPos());
+	}
+
+	/**
+	 * Queues a vanilla neighbor update for the block in front of a module, and the blocks around it, since a module's
+	 * output powers it strongly. Duplicates are merged, and the updates sent at the end of the tick.
+	 */
+	public void queueOutputUpdate(BlockPos pos, Direction front) {
+		outputUpdates.merge(pos.toImmutable(), 1 << front.ordinal(), (a, b) -> a | b);
+	}
+
+	/**
+	 * Queues a vanilla neighbor update around the block above a module whose settings changed, for anything resting on
+	 * it that cares. Duplicates are merged, and the updates sent at the end of the tick.
+	 */
+	public void queueSettingsUpdate(BlockPos pos) {
+		settingsUpdates.add(pos.toImmutable());
+	}
+
+	private void flushOutputUpdates() {
+		if (!settingsUpdates.isEmpty()) {
+			List<BlockPos> updates = new ArrayList<>(settingsUpdates);
+			settingsUpdates.clear();
+			for (BlockPos pos : updates) {
+				world.updateNeighborsAlways(pos.up(), world.getBlockState(pos).getBlock());
+			}
+		}
+		if (outputUpdates.isEmpty()) return;
+		//Copy first, since the blocks we notify can change modules, which queue more updates for the next tick
+		List<Map.Entry<BlockPos, Integer>> updates = new ArrayList<>(outputUpdates.entrySet());
+		outputUpdates.clear();
+		for (Map.Entry<BlockPos, Integer> update : updates) {
+			BlockPos pos = update.getKey();
+			Block block = world.getBlockState(pos).getBlock();
+			for (Direction dir : PackedPos.DIRECTIONS) {
+				if ((update.getValue() & (1 << dir.ordinal())) == 0) continue;
+				BlockPos front = pos.offset(dir);
+				world.updateNeighbor(front, block, pos);
+				world.updateNeighborsExcept(front, block, dir.getOpposite());
+			}
+		}
+	}
+
+	/**
+	 * Drops every compiled circuit that depends on the indicated position, so it gets recompiled on the next IR tick.
+	 * Call whenever something there changes in a way that could change how a circuit is wired or configured.
+	 */
+	public void invalidateCircuits(BlockPos pos) {
+		if (!isCompiling()) return;
+		List<Netlist> inChunk = circuitsByChunk.get(chunkKey(pos));
+		if (inChunk != null) {
+			for (Netlist circuit : inChunk) {
+				if (circuit.isValid() && circuit.contains(pos)) invalidate(circuit);
+			}
+		}
+		IRComponentBlockEntity module = byPos.get(pos);
+		if (module != null && module.getCircuit() == null) pendingCompile.add(module);
+	}
+
+	/**
+	 * Same as {@link #invalidateCircuits(BlockPos)} for many positions at once, like every wire of a network. Each
+	 * circuit near them is only checked once, however many of the positions share its chunks.
+	 */
+	public void invalidateCircuits(Collection<BlockPos> positions) {
+		if (!isCompiling() || positions.isEmpty()) return;
+		LongOpenHashSet chunks = new LongOpenHashSet();
+		for (BlockPos pos : positions) {
+			chunks.add(chunkKey(pos));
+		}
+		List<Netlist> checked = new ArrayList<>();
+		for (long chunk : chunks) {
+			List<Netlist> inChunk = circuitsByChunk.get(chunk);
+			if (inChunk == null) continue;
+			for (Netlist circuit : inChunk) {
+				if (!circuit.isValid() || checked.contains(circuit)) continue;
+				checked.add(circuit);
+				for (BlockPos pos : positions) {
+					if (circuit.contains(pos)) {
+						invalidate(circuit);
+						break;
+					}
+				}
+			}
+		}
+		for (BlockPos pos : positions) {
+			IRComponentBlockEntity module = byPos.get(pos);
+			if (module != null && module.getCircuit() == null) pendingCompile.add(module);
+		}
+	}
+
+	/** Drops a circuit, and queues its modules to be compiled again. It leaves the index once the IR tick is done. */
+	private void invalidate(Netlist circuit) {
+		circuit.invalidate();
+		for (IRComponentBlockEntity owner : circuit.getOwners()) {
+			owner.setCircuit(null);
+			owner.wake();
+			pendingCompile.add(owner);
+		}
+	}
+
+	private void unindex(Netlist circuit) {
+		for (long chunk : circuit.getChunks()) {
+			List<Netlist> inChunk = circuitsByChunk.get(chunk);
+			if (inChunk == null) continue;
+			inChunk.remove(circuit);
+			if (inChunk.isEmpty()) circuitsByChunk.remove(chunk);
+		}
+	}
+
+	private boolean isCompiling() {
+		return InfraRedstoneConfig.INSTANCE.compiledCircuits;
+	}
+
+	private void compilePending() {
+		List<IRComponentBlockEntity> toCompile = new ArrayList<>();
+		for (IRComponentBlockEntity module : pendingCompile) {
+			if (isLive(module) && module.getCircuit() == null) toCompile.add(module);
+		}
+		pendingCompile.clear();
+		for (Netlist circuit : Netlist.compile(world, signals, toCompile)) {
+			circuits.add(circuit);
+			for (long chunk : circuit.getChunks()) {
+				circuitsByChunk.computeIfAbsent(chunk, key -> new ArrayList<>()).add(circuit);
+			}
+			for (IRComponentBlockEntity owner : circuit.getOwners()) {
+				owner.setCircuit(circuit);
+			}
+		}
+		for (IRComponentBlockEntity module : toCompile) {
+			if (module.getCircuit() == null) uncompiled.add(module);
+		}
+	}
+
+	private void tick() {
+		// Modules can be added or removed by neighbor updates while we loop, so go by index and sweep afterwards
+		IRScheduler scheduler = IRScheduler.get(world);
+		if (scheduler.isIRTick()) {
+			if (isCompiling()) {
+				if (!pendingCompile.isEmpty()) compilePending();
+				if (InfraRedstoneConfig.INSTANCE.parallelCircuits && circuits.size() > CIRCUITS_PER_TASK) {
+					getPool().invoke(new ComputeTask(circuits, signals, 0, circuits.size()));
+				} else {
+					for (int i = 0; i < circuits.size(); i++) {
+						circuits.get(i).compute(signals);
+					}
+				}
+				//Side effects from applying can invalidate circuits, so check each one as we get to it
+				for (int i = 0; i < circuits.size(); i++) {
+					Netlist circuit = circuits.get(i);
+					if (circuit.isValid()) circuit.apply(signals);
+				}
+				circuits.removeIf(circuit -> {
+					if (circuit.isValid()) return false;
+					unindex(circuit);
+					return true;
+				});
+			}
+			for (int i = 0; i < modules.size(); i++) {
+				IRComponentBlockEntity module = modules.get(i);
+				if (!isLive(module)) needsSweep = true;
+				else if (module.getCircuit() == null) ((IRModule)module).computeNext();
+			}
+		} else if (scheduler.isCopyTick()) {
+			lastChanged = null;
+			signals.swap(onSlotChanged);
+			lastChanged = null;
+		}
+		if (world.getTime() % CHUNK_PRUNE_INTERVAL == 0) pruneUnloadedChunks();
+		if (needsSweep) {
+			needsSweep = false;
+			modules.removeIf(module -> {
+				if (isLive(module)) return false;
+				if (byPos.get(module.getPos()) == module) byPos.remove(module.getPos());
+				long chunk = chunkKey(module.getPos());
+				List<IRComponentBlockEntity> inChunk = byChunk.get(chunk);
+				if (inChunk != null) {
+					inChunk.remove(module);
+					if (inChunk.isEmpty()) byChunk.remove(chunk);
+				}
+				for (InfraRedstoneHandler handler : ((IRModule)module).getHandlers()) {
+					handler.unbind();
+				}
+				invalidateCircuits(module.getPos());
+				uncompiled.remove(module);
+				return true;
+			});
+		}
+		flushOutputUpdates();
+	}
+
+	/**
+	 * Drops the chunks that have unloaded since the last check from the chunk index all at once, rather than leaving
+	 * them until each of their modules happens to be swept. The modules themselves are dropped by the next sweep.
+	 */
+	private void pruneUnloadedChunks() {
+		Iterator<Long2ObjectMap.Entry<List<IRComponentBlockEntity>>> iter = byChunk.long2ObjectEntrySet().iterator();
+		while (iter.hasNext()) {
+			Long2ObjectMap.Entry<List<IRComponentBlockEntity>> entry = iter.next();
+			long chunk = entry.getLongKey();
+			//Same packing as ChunkPos.toLong
+			if (world.isBlockLoaded(chunkProbe.set((int) chunk << 4, 0, (int) (chunk >> 32) << 4))) continue;
+			iter.remove();
+			for (IRComponentBlockEntity module : entry.getValue()) {
+				if (byPos.get(module.getPos()) == module) byPos.remove(module.getPos());
+			}
+			needsSweep = true;
+		}
+	}
+
+	/**
+	 * @return the modules ticking in a chunk. Don't modify it. Modules removed this tick can still be in it, so check
+	 * {@link IRComponentBlockEntity#isInvalid()}.
+	 */
+	public List<IRComponentBlockEntity> getModules(int chunkX, int chunkZ) {
+		List<IRComponentBlockEntity> inChunk = byChunk.get(ChunkPos.toLong(chunkX, chunkZ));
+		return (inChunk == null) ? Collections.emptyList() : inChunk;
+	}
+
+	private static long chunkKey(BlockPos pos) {
+		return ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+	}
+
+	private boolean isLive(IRComponentBlockEntity module) {
+		BlockPos pos = module.getPos();
+		return !module.isInvalid() && byPos.get(pos) == module && world.isBlockLoaded(pos);
+	}
+
+	private static ForkJoinPool getPool() {
+		if (pool == null) {
+			int threads = InfraRedstoneConfig.INSTANCE.parallelThreads;
+			pool = new ForkJoinPool((threads > 0) ? threads : Runtime.getRuntime().availableProcessors());
+		}
+		return pool;
+	}
+
+	/**
+	 * Computes a range of circuits, splitting it in half until the pieces are small enough.
+	 */
+	private static class ComputeTask extends RecursiveAction {
+		private final List<Netlist> circuits;
+		private final SignalStore<?> store;
+		private final int from;
+		private final int to;
+
+		private ComputeTask(List<Netlist> circuits, SignalStore<?> store, int from, int to) {
+			this.circuits = circuits;
+			this.store = store;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CIRCUITS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					circuits.get(i).compute(store);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ComputeTask(circuits, store, from, middle), new ComputeTask(circuits, store, middle, to));
+			}
+		}
+	}
+}
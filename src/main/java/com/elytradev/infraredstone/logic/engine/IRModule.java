@@ -0,0 +1,38 @@
+package com.elytradev.infraredstone.logic.engine;
+
+import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
+
+/**
+ * A block entity that computes an IR signal. Ticked by its world's {@link IREngine} instead of by vanilla.
+ */
+public interface IRModule {
+	/**
+	 * IR tick: read the inputs and work out the next signal value.
+	 */
+	void computeNext();
+
+	/**
+	 * Copy tick: called after the engine adopted the next value of one of this module's handlers, if it changed.
+	 */
+	void onSignalChanged();
+
+	/**
+	 * @return every handler the module outputs through. Their values are kept in the engine's {@link SignalStore}
+	 * while the module is loaded.
+	 */
+	InfraRedstoneHandler[] getHandlers();
+
+	/**
+	 * Describes the module as a netlist node, for compiled mode. Modules that don't override this are never compiled.
+	 * @return false if the module can't be compiled right now.
+	 */
+	default boolean compile(Netlist.NodeBuilder node) {
+		return false;
+	}
+
+	/**
+	 * Compiled mode: called with the inputs the netlist read for this module whenever they change, since
+	 * {@link #computeNext} isn't being called to keep track of them.
+	 */
+	default void onInputsChanged(int[] inputs) {}
+}
@@ -0,0 +1,109 @@
+package com.elytradev.infraredstone.logic.engine;
+
+import com.elytradev.infraredstone.util.InfraRedstoneConfig;
+import com.elytradev.infraredstone.util.PerWorld;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+
+/**
+ * Keeps one world's IR phase. Every {@link #getPeriod()} ticks there's an IR tick, where modules work out their next
+ * values, followed by a copy tick, where they adopt them. Each world has its own, so dimensions can run their IR ticks
+ * on different server ticks, and a new world always starts fresh.
+ * <p>
+ * Server worlds only, and only from the server thread; clients don't run IR ticks.
+ */
+public class IRScheduler {
+	private static final PerWorld<IRScheduler> SCHEDULERS = PerWorld.create("IR ticks only run on the server", IRScheduler::create);
+	/** The overworld's scheduler, as of the last tick, for {@link #getOverworld}. */
+	private static volatile IRScheduler overworld;
+
+	private int period;
+	private int phase;
+	private long epoch;
+
+	private IRScheduler(int period, int phase) {
+		this.period = period;
+		this.phase = phase;
+	}
+
+	public static IRScheduler get(World world) {
+		return SCHEDULERS.get(world);
+	}
+
+	private static IRScheduler create(World world) {
+		int period = Math.max(2, InfraRedstoneConfig.INSTANCE.irPeriod);
+		//Each dimension starts a tick further along, so their IR ticks don't all land on the same server tick. Going by
+		//dimension rather than load order keeps it the same every time the server starts.
+		int phase = InfraRedstoneConfig.INSTANCE.staggerWorlds ? Math.floorMod(world.dimension.getType().getRawId(), period) : 0;
+		return new IRScheduler(period, phase);
+	}
+
+	/**
+	 * Moves every world's scheduler on by one tick. Registered on the server tick event.
+	 */
+	public static void advanceAll(MinecraftServer server) {
+		for (IRScheduler scheduler : SCHEDULERS.values()) {
+			scheduler.advance();
+		}
+		overworld = get(server.getWorld(DimensionType.OVERWORLD));
+	}
+
+	/**
+	 * @return the overworld's scheduler as of the last server tick, or null if no server has ticked yet. Safe to call
+	 * from any thread, for anything that only knows about one global IR tick.
+	 */
+	public static IRScheduler getOverworld() {
+		return overworld;
+	}
+
+	private void advance() {
+		epoch++;
+		phase = (phase + 1) % period;
+	}
+
+	/**
+	 * @return true if modules should work out their next values this tick.
+	 */
+	public boolean isIRTick() {
+		return phase == 0;
+	}
+
+	/**
+	 * @return true if modules should adopt the values worked out on the last IR tick.
+	 */
+	public boolean isCopyTick() {
+		return phase == 1;
+	}
+
+	/**
+	 * @return a number that changes every tick. Anything cached against it is stale once it changes.
+	 */
+	public long getEpoch() {
+		return epoch;
+	}
+
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @param period server ticks from one IR tick to the next. At least 2, for the IR tick and its copy tick.
+	 */
+	public void setPeriod(int period) {
+		if (period < 2) throw new IllegalArgumentException("An IR period needs at least 2 ticks, got " + period);
+		this.period = period;
+		phase %= period;
+	}
+
+	public int getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Shifts the world's IR ticks; for instance, to move them off of another world's.
+	 */
+	public void setPhase(int phase) {
+		this.phase = Math.floorMod(phase, period);
+	}
+}
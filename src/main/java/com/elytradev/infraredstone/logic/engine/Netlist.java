@@ -0,0 +1,424 @@
+package com.elytradev.infraredstone.logic.engine;
+
+import com.elytradev.infraredstone.api.InfraRedstoneSignal;
+import com.elytradev.infraredstone.block.entity.AndGateBlockEntity;
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.block.entity.OscillatorBlockEntity;
+import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.impl.InfraRedstoneHandler;
+import com.elytradev.infraredstone.util.enums.InactiveSelection;
+import com.elytradev.infraredstone.util.enums.ShifterSelection;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One compiled circuit: a group of connected modules flattened into arrays, so an IR tick can evaluate them in
+ * dependency order without touching the world. Nodes read their inputs from the {@link SignalStore} and write their
+ * next values back into it, so compiled modules still take one IR tick per stage, just like interpreted ones.
+ */
+public class Netlist {
+	public static final int DIODE = 0;
+	public static final int NOT = 1;
+	public static final int AND = 2;
+	public static final int XOR = 3;
+	public static final int TRANSISTOR = 4;
+	public static final int SHIFTER = 5;
+	public static final int OSCILLATOR = 6;
+
+	/** The most inputs a node can read. */
+	public static final int MAX_INPUTS = 3;
+
+	private static final InactiveSelection[] INACTIVE_SELECTIONS = InactiveSelection.values();
+
+	private final IRComponentBlockEntity[] owners;
+	private final int[] opcodes;
+	private final int[] params;
+	private final int[] outputs;
+	/** Second output slot, for the shifter's eject, or -1. */
+	private final int[] ejects;
+	/** Bits each input always has, indexed by node * MAX_INPUTS + input. */
+	private final int[] inputConstants;
+	/** Where each input's slots start in {@link #terms}, indexed the same way plus one extra entry at the end. */
+	private final int[] termStart;
+	private final int[] terms;
+	private final int[] lastInputs;
+
+	//Results of the last compute(), waiting for apply()
+	private final int[] nodeInputs;
+	private final boolean[] inputsChanged;
+	private final int[] results;
+	private final int[] ejectResults;
+	private final int[] inputs = new int[MAX_INPUTS];
+
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	private boolean valid = true;
+
+	private Netlist(List<NodeBuilder> nodes) {
+		int count = nodes.size();
+		owners = new IRComponentBlockEntity[count];
+		opcodes = new int[count];
+		params = new int[count];
+		outputs = new int[count];
+		ejects = new int[count];
+		inputConstants = new int[count * MAX_INPUTS];
+		termStart = new int[count * MAX_INPUTS + 1];
+		lastInputs = new int[count];
+		nodeInputs = new int[count * MAX_INPUTS];
+		inputsChanged = new boolean[count];
+		results = new int[count];
+		ejectResults = new int[count];
+
+		int termCount = 0;
+		for (NodeBuilder node : nodes) {
+			for (List<Integer> slots : node.slots) termCount += slots.size();
+		}
+		terms = new int[termCount];
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		int term = 0;
+		for (int i = 0; i < count; i++) {
+			NodeBuilder node = nodes.get(i);
+			owners[i] = node.owner;
+			opcodes[i] = node.opcode;
+			params[i] = node.param;
+			outputs[i] = node.output;
+			ejects[i] = node.eject;
+			lastInputs[i] = -1;
+			for (int k = 0; k < MAX_INPUTS; k++) {
+				int index = i * MAX_INPUTS + k;
+				inputConstants[index] = node.constants[k];
+				termStart[index] = term;
+				for (int slot : node.slots.get(k)) terms[term++] = slot;
+			}
+			minX = Math.min(minX, node.minX);
+			minY = Math.min(minY, node.minY);
+			minZ = Math.min(minZ, node.minZ);
+			maxX = Math.max(maxX, node.maxX);
+			maxY = Math.max(maxY, node.maxY);
+			maxZ = Math.max(maxZ, node.maxZ);
+		}
+		termStart[count * MAX_INPUTS] = term;
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * Compiles as many of the indicated modules as possible, grouped into circuits of modules that read each other.
+	 * Modules that can't be compiled are left out, and keep running their own {@link IRModule#computeNext}.
+	 */
+	public static List<Netlist> compile(World world, SignalStore<IRComponentBlockEntity> store, Collection<IRComponentBlockEntity> modules) {
+		List<NodeBuilder> nodes = new ArrayList<>();
+		Map<Integer, Integer> nodeBySlot = new HashMap<>();
+		for (IRComponentBlockEntity module : modules) {
+			NodeBuilder node = new NodeBuilder(world, store, module);
+			if (!((IRModule)module).compile(node)) continue;
+			nodeBySlot.put(node.output, nodes.size());
+			if (node.eject >= 0) nodeBySlot.put(node.eject, nodes.size());
+			nodes.add(node);
+		}
+
+		//Union every node with the nodes it reads from
+		int[] parent = new int[nodes.size()];
+		for (int i = 0; i < parent.length; i++) parent[i] = i;
+		List<List<Integer>> readsFrom = new ArrayList<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			List<Integer> sources = new ArrayList<>();
+			for (List<Integer> slots : nodes.get(i).slots) {
+				for (int slot : slots) {
+					Integer source = nodeBySlot.get(slot);
+					if (source == null || source == i || sources.contains(source)) continue;
+					sources.add(source);
+					parent[find(parent, i)] = find(parent, source);
+				}
+			}
+			readsFrom.add(sources);
+		}
+
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+		}
+
+		List<Netlist> circuits = new ArrayList<>();
+		for (List<Integer> group : groups.values()) {
+			List<NodeBuilder> sorted = new ArrayList<>();
+			for (int i : sort(group, readsFrom)) sorted.add(nodes.get(i));
+			circuits.add(new Netlist(sorted));
+		}
+		return circuits;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Orders a group so every node comes after the nodes it reads from. Nodes in feedback loops go last, in their
+	 * original order; since nodes only ever read last tick's values, the order never changes the result.
+	 */
+	private static List<Integer> sort(List<Integer> group, List<List<Integer>> readsFrom) {
+		Map<Integer, Integer> waitingOn = new HashMap<>();
+		Map<Integer, List<Integer>> readers = new HashMap<>();
+		for (int i : group) {
+			waitingOn.put(i, readsFrom.get(i).size());
+			for (int source : readsFrom.get(i)) readers.computeIfAbsent(source, key -> new ArrayList<>()).add(i);
+		}
+
+		List<Integer> sorted = new ArrayList<>();
+		for (int i : group) {
+			if (waitingOn.get(i) == 0) sorted.add(i);
+		}
+		for (int index = 0; index < sorted.size(); index++) {
+			for (int reader : readers.getOrDefault(sorted.get(index), Collections.emptyList())) {
+				int left = waitingOn.get(reader) - 1;
+				waitingOn.put(reader, left);
+				if (left == 0) sorted.add(reader);
+			}
+		}
+		for (int i : group) {
+			if (waitingOn.get(i) > 0) sorted.add(i);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Works out every node's next value from the current values in the store.
+	 */
+	public void evaluate(SignalStore<?> store) {
+		compute(store);
+		apply(store);
+	}
+
+	/**
+	 * First half of {@link #evaluate}: reads the store and works out every node's results, without writing to the store
+	 * or touching any module. Circuits can run this in parallel, as long as nothing writes the store meanwhile.
+	 */
+	public void compute(SignalStore<?> store) {
+		for (int i = 0; i < opcodes.length; i++) {
+			int packed = 0;
+			for (int k = 0; k < MAX_INPUTS; k++) {
+				int index = i * MAX_INPUTS + k;
+				int value = inputConstants[index];
+				for (int term = termStart[index]; term < termStart[index + 1]; term++) {
+					value |= store.getSignal(terms[term]);
+				}
+				nodeInputs[index] = value;
+				packed |= (value & 0b11_1111) << (6 * k);
+			}
+			inputsChanged[i] = packed != lastInputs[i];
+			lastInputs[i] = packed;
+
+			int a = nodeInputs[i * MAX_INPUTS];
+			int b = nodeInputs[i * MAX_INPUTS + 1];
+			int c = nodeInputs[i * MAX_INPUTS + 2];
+			int param = params[i];
+			switch (opcodes[i]) {
+				case DIODE:
+					results[i] = a & param;
+					break;
+				case NOT:
+					if (param != 0) results[i] = (a == 0) ? 1 : 0;
+					else results[i] = (~a) & 0b11_1111;
+					break;
+				case AND:
+					results[i] = AndGateBlockEntity.evaluate((param & 1) != 0, INACTIVE_SELECTIONS[param >> 1], a, b, c);
+					break;
+				case XOR:
+					if (param != 0) results[i] = ((a > 0) != (b > 0)) ? 1 : 0;
+					else results[i] = a ^ b;
+					break;
+				case TRANSISTOR:
+					results[i] = (a > 0 && (b > 0 || c > 0)) ? a : 0;
+					break;
+				case SHIFTER:
+					if (param == ShifterSelection.LEFT.ordinal()) {
+						ejectResults[i] = ((a & 0b10_0000) != 0) ? 1 : 0;
+						results[i] = (a << 1) & 0b11_1111;
+					} else {
+						ejectResults[i] = ((a & 0b00_0001) != 0) ? 1 : 0;
+						results[i] = (a >>> 1) & 0b11_1111;
+					}
+					break;
+				case OSCILLATOR:
+					//Keeps its refresh cycle on the block entity, so it's stepped in apply()
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Second half of {@link #evaluate}: writes the results of the last {@link #compute} into the store and tells the
+	 * modules about their new inputs. Always runs on the server thread.
+	 */
+	public void apply(SignalStore<?> store) {
+		for (int i = 0; i < opcodes.length; i++) {
+			System.arraycopy(nodeInputs, i * MAX_INPUTS, inputs, 0, MAX_INPUTS);
+			if (opcodes[i] == OSCILLATOR) {
+				((OscillatorBlockEntity)owners[i]).step(inputs[0]);
+			} else {
+				store.setNext(outputs[i], results[i]);
+				if (ejects[i] >= 0) store.setNext(ejects[i], ejectResults[i]);
+			}
+			if (inputsChanged[i]) ((IRModule)owners[i]).onInputsChanged(inputs);
+		}
+	}
+
+	public IRComponentBlockEntity[] getOwners() {
+		return owners;
+	}
+
+	/**
+	 * @return true if the circuit depends on what's at the indicated position.
+	 */
+	public boolean contains(BlockPos pos) {
+		return pos.getX() >= minX && pos.getX() <= maxX
+				&& pos.getY() >= minY && pos.getY() <= maxY
+				&& pos.getZ() >= minZ && pos.getZ() <= maxZ;
+	}
+
+	/**
+	 * @return every chunk the circuit's bounds reach into, packed like {@link ChunkPos#toLong}.
+	 */
+	public long[] getChunks() {
+		int minChunkX = minX >> 4, maxChunkX = maxX >> 4;
+		int minChunkZ = minZ >> 4, maxChunkZ = maxZ >> 4;
+		long[] chunks = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+		int i = 0;
+		for (int x = minChunkX; x <= maxChunkX; x++) {
+			for (int z = minChunkZ; z <= maxChunkZ; z++) {
+				chunks[i++] = ChunkPos.toLong(x, z);
+			}
+		}
+		return chunks;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Lets a module describe itself as one node of a netlist. See {@link IRModule#compile}.
+	 */
+	public static class NodeBuilder implements Sources {
+		private final World world;
+		private final SignalStore<?> store;
+		private final IRComponentBlockEntity owner;
+
+		private int opcode;
+		private int param;
+		private int output = -1;
+		private int eject = -1;
+		private final int[] constants = new int[MAX_INPUTS];
+		private final List<List<Integer>> slots = new ArrayList<>();
+		private int current;
+
+		private int minX, minY, minZ, maxX, maxY, maxZ;
+
+		private NodeBuilder(World world, SignalStore<?> store, IRComponentBlockEntity owner) {
+			this.world = world;
+			this.store = store;
+			this.owner = owner;
+			for (int k = 0; k < MAX_INPUTS; k++) slots.add(new ArrayList<>());
+			BlockPos pos = owner.getPos();
+			minX = maxX = pos.getX();
+			minY = maxY = pos.getY();
+			minZ = maxZ = pos.getZ();
+		}
+
+		/**
+		 * @param opcode what the node does. One of the constants on {@link Netlist}.
+		 * @param param the node's settings, as the opcode expects them.
+		 * @param output the handler the node outputs through.
+		 * @param eject the shifter's second output, or null.
+		 * @param inputs the direction *from* the module *towards* each input, in the order the opcode expects them.
+		 * @return false if the module can't be compiled, for instance because an input reads a third-party signal.
+		 */
+		public boolean define(int opcode, int param, InfraRedstoneHandler output, InfraRedstoneHandler eject, Direction... inputs) {
+			if (inputs.length > MAX_INPUTS) throw new IllegalArgumentException("A node can't read more than " + MAX_INPUTS + " inputs");
+			this.opcode = opcode;
+			this.param = param;
+			this.output = output.getSlot(store);
+			if (this.output < 0) return false;
+			if (eject != null) {
+				this.eject = eject.getSlot(store);
+				if (this.eject < 0) return false;
+			}
+			for (current = 0; current < inputs.length; current++) {
+				if (!InRedLogic.collectIRSources(world, owner.getPos(), inputs[current], this)) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void constant(int bits) {
+			constants[current] |= bits;
+		}
+
+		@Override
+		public boolean signal(InfraRedstoneSignal signal) {
+			if (signal == null) return false;
+			if (signal == InfraRedstoneHandler.ALWAYS_OFF || signal == InfraRedstoneHandler.ALWAYS_MAX) {
+				constant(signal.getSignalValue());
+				return true;
+			}
+			if (!(signal instanceof InfraRedstoneHandler)) return false;
+			int slot = ((InfraRedstoneHandler)signal).getSlot(store);
+			if (slot < 0) return false;
+			slots.get(current).add(slot);
+			return true;
+		}
+
+		@Override
+		public void touch(BlockPos pos) {
+			minX = Math.min(minX, pos.getX());
+			minY = Math.min(minY, pos.getY());
+			minZ = Math.min(minZ, pos.getZ());
+			maxX = Math.max(maxX, pos.getX());
+			maxY = Math.max(maxY, pos.getY());
+			maxZ = Math.max(maxZ, pos.getZ());
+		}
+	}
+
+	/**
+	 * Receives everything one module input reads from, as worked out by {@link InRedLogic#collectIRSources}.
+	 */
+	public interface Sources {
+		/**
+		 * Adds bits that can only change along with the blocks the input depends on.
+		 */
+		void constant(int bits);
+
+		/**
+		 * @return false if the signal can't be read out of the store, so the input can't be compiled.
+		 */
+		boolean signal(InfraRedstoneSignal signal);
+
+		/**
+		 * Marks a position the input depends on, so the circuit gets recompiled when something there changes.
+		 */
+		void touch(BlockPos pos);
+	}
+}
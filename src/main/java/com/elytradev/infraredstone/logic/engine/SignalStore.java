@@ -0,0 +1,114 @@
+package com.elytradev.infraredstone.logic.engine;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Current and next signal values for every module in a world, kept in two flat arrays indexed by slot.
+ * A copy tick swaps the arrays instead of copying every module's next value over its current one.
+ * @param <T> what owns each slot.
+ */
+public class SignalStore<T> {
+	private int[] current = new int[64];
+	private int[] next = new int[64];
+	private Object[] owners = new Object[64];
+	private int size;
+
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+
+	//Slots whose next value was set to something other than their current one since the last swap
+	private boolean[] queued = new boolean[64];
+	private int[] pending = new int[16];
+	private int[] spare = new int[16];
+	private int pendingCount;
+
+	/**
+	 * @return a new slot for the indicated owner, with both values set to 0.
+	 */
+	public int allocate(T owner) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (size == current.length) grow();
+			slot = size++;
+		}
+		owners[slot] = owner;
+		current[slot] = 0;
+		next[slot] = 0;
+		return slot;
+	}
+
+	public void free(int slot) {
+		owners[slot] = null;
+		current[slot] = 0;
+		next[slot] = 0;
+		if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		freeSlots[freeCount++] = slot;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getOwner(int slot) {
+		return (T) owners[slot];
+	}
+
+	public int getSignal(int slot) {
+		return current[slot];
+	}
+
+	public void setSignal(int slot, int value) {
+		current[slot] = value;
+		if (next[slot] != value) queue(slot);
+	}
+
+	public int getNext(int slot) {
+		return next[slot];
+	}
+
+	public void setNext(int slot, int value) {
+		next[slot] = value;
+		if (value != current[slot]) queue(slot);
+	}
+
+	/**
+	 * Adopts every next value at once. Afterwards each slot's next value starts out equal to its new current value,
+	 * so modules that don't set one keep their signal.
+	 * @param onChanged told about each slot whose signal actually changed.
+	 */
+	public void swap(IntConsumer onChanged) {
+		int[] swap = current;
+		current = next;
+		next = swap;
+
+		//Slots can be queued again while we call out, so they go into the other buffer
+		int[] slots = pending;
+		int count = pendingCount;
+		pending = spare;
+		spare = slots;
+		pendingCount = 0;
+
+		for (int i = 0; i < count; i++) {
+			int slot = slots[i];
+			queued[slot] = false;
+			int old = next[slot];
+			next[slot] = current[slot];
+			if (old != current[slot] && owners[slot] != null) onChanged.accept(slot);
+		}
+	}
+
+	private void queue(int slot) {
+		if (queued[slot]) return;
+		queued[slot] = true;
+		if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pendingCount * 2);
+		pending[pendingCount++] = slot;
+	}
+
+	private void grow() {
+		int length = current.length * 2;
+		current = Arrays.copyOf(current, length);
+		next = Arrays.copyOf(next, length);
+		owners = Arrays.copyOf(owners, length);
+		queued = Arrays.copyOf(queued, length);
+	}
+}
@@ -2,6 +2,7 @@ package com.elytradev.infraredstone.logic.impl;
 
 import com.elytradev.infraredstone.api.EncoderScannable;
 import com.elytradev.infraredstone.api.InfraRedstoneSignal;
+import com.elytradev.infraredstone.logic.engine.SignalStore;
 import net.minecraft.util.math.Direction;
 
 public class InfraRedstoneHandler implements InfraRedstoneSignal, EncoderScannable {
@@ -9,36 +10,72 @@ public class InfraRedstoneHandler implements InfraRedstoneSignal, EncoderScannab
 	
 	public static final InfraRedstoneSignal ALWAYS_MAX = () -> 63;
 	
+	//Only used while the handler isn't bound to a store slot
 	private int signalValue;
 	private int nextSignalValue;
 	private Runnable onChanged;
+
+	private SignalStore<?> store;
+	private int slot = -1;
 	
 	public void listen(Runnable r) {
 		this.onChanged = r;
 	}
 	
+	/**
+	 * Moves this handler's values into a slot of the indicated store, where they'll live until {@link #unbind()}.
+	 */
+	public void bind(SignalStore<?> store, int slot) {
+		unbind();
+		this.store = store;
+		this.slot = slot;
+		store.setSignal(slot, signalValue);
+		store.setNext(slot, nextSignalValue);
+	}
+
+	/**
+	 * Moves this handler's values back out of its store and frees its slot.
+	 */
+	public void unbind() {
+		if (store == null) return;
+		signalValue = store.getSignal(slot);
+		nextSignalValue = store.getNext(slot);
+		store.free(slot);
+		store = null;
+		slot = -1;
+	}
+
+	/**
+	 * @return the slot this handler is bound to in the indicated store, or -1 if it isn't bound to that store.
+	 */
+	public int getSlot(SignalStore<?> store) {
+		return (this.store == store) ? slot : -1;
+	}
+
 	@Override
 	public int getSignalValue() {
-		return signalValue;
+		return (store == null) ? signalValue : store.getSignal(slot);
 	}
 
 	public void setSignalValue(int val) {
-		signalValue = val;
+		if (store == null) signalValue = val;
+		else store.setSignal(slot, val);
 		onChanged();
 	}
 	
 	public int getNextSignalValue() {
-		return nextSignalValue;
+		return (store == null) ? nextSignalValue : store.getNext(slot);
 	}
 	
 	public void setNextSignalValue(int val) {
-		nextSignalValue = val;
+		if (store == null) nextSignalValue = val;
+		else store.setNext(slot, val);
 		onChanged();
 	}
 
 	@Override
 	public int getEncoderValue(Direction dir) {
-		return signalValue;
+		return getSignalValue();
 	}
 	
 	public void onChanged() {
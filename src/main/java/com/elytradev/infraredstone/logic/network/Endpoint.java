@@ -0,0 +1,36 @@
+package com.elytradev.infraredstone.logic.network;
+
+import com.google.common.base.Objects;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+/**
+ * A non-wire block face that a wire network touches. {@code facing} has the same semantics as Capability sides.
+ */
+public class Endpoint {
+	public final BlockPos pos;
+	public final Direction facing;
+
+	public Endpoint(BlockPos pos, Direction facing) {
+		this.pos = pos;
+		this.facing = facing;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(pos, facing);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == null) return false;
+		if (!(other instanceof Endpoint)) return false;
+		Endpoint otherEnd = (Endpoint) other;
+		return Objects.equal(pos, otherEnd.pos) && Objects.equal(facing, otherEnd.facing);
+	}
+
+	@Override
+	public String toString() {
+		return "{x:" + pos.getX() + ", y:" + pos.getY() + ", z:" + pos.getZ() + ", dir:" + facing + "}";
+	}
+}
@@ -0,0 +1,262 @@
+package com.elytradev.infraredstone.logic.network;
+
+import com.elytradev.infraredstone.logic.IRBlockRole;
+import com.elytradev.infraredstone.logic.InRedLogic;
+import com.elytradev.infraredstone.logic.engine.IRScheduler;
+import com.elytradev.infraredstone.logic.search.BlockCache;
+import com.elytradev.infraredstone.logic.search.PackedPos;
+import com.elytradev.infraredstone.logic.search.SearchContext;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One connected set of cables and scaffolds, along with every non-wire face it touches.
+ * Built once by {@link WireNetworkRegistry} and kept until something around one of its wires changes.
+ */
+public class WireNetwork {
+	/** Deepest a network may be from its seed and still have every endpoint within search range of every other. */
+	private static final int MAX_EXACT_DEPTH = 31;
+
+	private static final Direction[] PLANAR_FACINGS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	/** Every wire in the network, mapped to the topology mask it had when the network was built. */
+	private final Map<BlockPos, Integer> wires;
+	private static int nextId;
+
+	/** Tells networks apart on clients, which only know them by it. */
+	private final int id = nextId++;
+	private final List<Endpoint> endpoints;
+	private final Map<Endpoint, Integer> endpointIndex = new HashMap<>();
+	private final boolean inRange;
+	private boolean valid = true;
+
+	//Everything read off the endpoints during one IR tick, shared by every reader of the network
+	private long cachedEpoch = -1;
+	private long preparedBatch;
+	private final int[] cachedValues;
+	private final int[] bitCounts = new int[32];
+	private int cachedTotal;
+
+	private WireNetwork(Map<BlockPos, Integer> wires, List<Endpoint> endpoints, boolean inRange) {
+		this.wires = wires;
+		this.endpoints = endpoints;
+		this.inRange = inRange;
+		this.cachedValues = new int[endpoints.size()];
+		for (int i = 0; i < endpoints.size(); i++) {
+			endpointIndex.put(endpoints.get(i), i);
+		}
+	}
+
+	/**
+	 * Grabs the bitwise OR of every endpoint on the network, as seen by the indicated reader.
+	 * During an IR tick, the endpoints are only read once no matter how many devices read the network.
+	 * @param reader the face doing the reading. It's left out so a device never reads its own input face.
+	 */
+	public int getValue(World world, Endpoint reader) {
+		prepare(world);
+		return valueFor(reader);
+	}
+
+	/**
+	 * Makes sure the endpoint values are current: once per IR tick, or on every call otherwise, since outside of
+	 * IR ticks signals can change between reads. Read them with {@link #valueFor} afterwards.
+	 */
+	public void prepare(World world) {
+		IRScheduler scheduler = IRScheduler.get(world);
+		if (scheduler.isIRTick()) {
+			long epoch = scheduler.getEpoch();
+			if (cachedEpoch != epoch) aggregate(world, epoch);
+		} else {
+			aggregate(world, -1);
+		}
+	}
+
+	/**
+	 * Like {@link #prepare(World)}, but only the first time it's called with each batch, for reads that should all see
+	 * the same values even outside of IR ticks.
+	 * @param batch an id that's different for each batch of reads, never 0.
+	 */
+	public void prepare(World world, long batch) {
+		if (preparedBatch == batch) return;
+		preparedBatch = batch;
+		prepare(world);
+	}
+
+	/**
+	 * @param reader the face doing the reading. It's left out so a device never reads its own input face.
+	 * @return the network value as of the last {@link #prepare}.
+	 */
+	public int valueFor(Endpoint reader) {
+		Integer index = endpointIndex.get(reader);
+		if (index == null) return cachedTotal;
+
+		// Take the reader's own bits back out, unless another endpoint is also supplying them
+		int result = cachedTotal;
+		int own = cachedValues[index];
+		while (own != 0) {
+			int bit = Integer.numberOfTrailingZeros(own);
+			if (bitCounts[bit] == 1) result &= ~(1 << bit);
+			own &= own - 1;
+		}
+		return result;
+	}
+
+	private void aggregate(World world, long epoch) {
+		cachedEpoch = epoch;
+		cachedTotal = 0;
+		Arrays.fill(bitCounts, 0);
+		for (int i = 0; i < endpoints.size(); i++) {
+			Endpoint cur = endpoints.get(i);
+			Integer val = InRedLogic.valueDirectlyAt(world, cur.pos, cur.facing);
+			int value = (val != null) ? val : 0;
+			cachedValues[i] = value;
+			cachedTotal |= value;
+			while (value != 0) {
+				bitCounts[Integer.numberOfTrailingZeros(value)]++;
+				value &= value - 1;
+			}
+		}
+	}
+
+	/**
+	 * @return the bitwise OR of every endpoint on the network as of the last {@link #prepare}; what a reader that isn't
+	 * one of its endpoints would see.
+	 */
+	public int getTotal() {
+		return cachedTotal;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Set<BlockPos> getWires() {
+		return Collections.unmodifiableSet(wires.keySet());
+	}
+
+	public List<Endpoint> getEndpoints() {
+		return Collections.unmodifiableList(endpoints);
+	}
+
+	/**
+	 * @return false if the network is big enough that some endpoints are out of search range of others.
+	 * Readers of such a network need a live search from their own position instead.
+	 */
+	public boolean isInRange() {
+		return inRange;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	boolean hasTopologyChanged(World world, BlockPos wire) {
+		Integer mask = wires.get(wire);
+		return mask == null || mask != topologyMask(world, wire);
+	}
+
+	/**
+	 * Walks every wire connected to {@code seed}, using the same connection rules as {@link InRedLogic#findIRValue}.
+	 */
+	static WireNetwork build(World world, BlockPos seed) {
+		SearchContext ctx = SearchContext.acquire(world);
+		try {
+			return build(ctx.blocks, seed);
+		} finally {
+			ctx.release();
+		}
+	}
+
+	private static WireNetwork build(BlockCache blocks, BlockPos seed) {
+		Map<BlockPos, Integer> wires = new HashMap<>();
+		Set<Endpoint> endpoints = new LinkedHashSet<>();
+		List<BlockPos> queue = new ArrayList<>();
+		List<BlockPos> next = new ArrayList<>();
+		int depth = 0;
+
+		wires.put(seed, topologyMask(blocks, seed));
+		queue.add(seed);
+
+		while (!queue.isEmpty()) {
+			for (BlockPos cur : queue) {
+				if (IRBlockRole.of(blocks.getBlockState(cur.getX(), cur.getY(), cur.getZ())) == IRBlockRole.WIRE) {
+					boolean upBlocked = blocks.isSideSolid(cur.getX(), cur.getY() + 1, cur.getZ(), Direction.DOWN);
+					for (Direction facing : PLANAR_FACINGS) {
+						BlockPos offset = cur.offset(facing);
+
+						if (offset.getY() < 255 && !upBlocked) visit(blocks, offset.up(), facing.getOpposite(), wires, endpoints, next);
+						if (offset.getY() > 0 && !blocks.isSideSolid(offset.getX(), offset.getY(), offset.getZ(), facing.getOpposite())) visit(blocks, offset.down(), facing.getOpposite(), wires, endpoints, next);
+						visit(blocks, offset, facing.getOpposite(), wires, endpoints, next);
+					}
+				} else {
+					for (Direction facing : PackedPos.DIRECTIONS) {
+						BlockPos offset = cur.offset(facing);
+						if (offset.getY() < 0 || offset.getY() > 255) continue;
+						visit(blocks, offset, facing.getOpposite(), wires, endpoints, next);
+					}
+				}
+			}
+			queue.clear();
+			queue.addAll(next);
+			next.clear();
+			if (!queue.isEmpty()) depth++;
+		}
+
+		return new WireNetwork(wires, new ArrayList<>(endpoints), depth <= MAX_EXACT_DEPTH);
+	}
+
+	private static void visit(BlockCache blocks, BlockPos pos, Direction facing, Map<BlockPos, Integer> wires, Set<Endpoint> endpoints, List<BlockPos> next) {
+		if (wires.containsKey(pos)) return;
+		BlockState state = blocks.getBlockState(pos.getX(), pos.getY(), pos.getZ());
+		if (state.isAir()) return;
+		if (IRBlockRole.of(state).isWire()) {
+			wires.put(pos, topologyMask(blocks, pos));
+			next.add(pos);
+		} else {
+			endpoints.add(new Endpoint(pos, facing));
+		}
+	}
+
+	/**
+	 * Packs everything about a wire's surroundings that can change which blocks it connects to:
+	 * whether each neighbor is air, and whether each neighbor's facing side is solid.
+	 */
+	static int topologyMask(World world, BlockPos wire) {
+		SearchContext ctx = SearchContext.acquire(world);
+		try {
+			return topologyMask(ctx.blocks, wire);
+		} finally {
+			ctx.release();
+		}
+	}
+
+	private static int topologyMask(BlockCache blocks, BlockPos wire) {
+		int mask = 0;
+		for (Direction dir : PackedPos.DIRECTIONS) {
+			int x = wire.getX() + PackedPos.offsetX(dir);
+			int y = wire.getY() + PackedPos.offsetY(dir);
+			int z = wire.getZ() + PackedPos.offsetZ(dir);
+			if (blocks.getBlockState(x, y, z).isAir()) {
+				mask |= 1 << dir.ordinal();
+			} else if (blocks.isSideSolid(x, y, z, dir.getOpposite())) {
+				mask |= 1 << (dir.ordinal() + 6);
+			}
+		}
+		return mask;
+	}
+}
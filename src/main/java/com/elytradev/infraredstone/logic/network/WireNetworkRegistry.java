@@ -0,0 +1,243 @@
+package com.elytradev.infraredstone.logic.network;
+
+import com.elytradev.infraredstone.block.ModuleBase;
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.logic.IRBlockRole;
+import com.elytradev.infraredstone.logic.engine.IREngine;
+import com.elytradev.infraredstone.logic.search.PackedPos;
+import com.elytradev.infraredstone.util.PerWorld;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every wire network a server world has been asked about, so signal lookups don't have to re-walk the wires.
+ * Networks are dropped when a wire is added or removed near them, or when the blocks around one of their wires change
+ * in a way that could change its connections, and get rebuilt the next time someone reads from them. Networks running
+ * through a chunk that unloads are dropped too.
+ */
+public class WireNetworkRegistry {
+	private static final PerWorld<WireNetworkRegistry> REGISTRIES = PerWorld.create("Wire networks are only tracked on the server", WireNetworkRegistry::new);
+	private static final Direction[] PLANAR_FACINGS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	/** How often, in server ticks, to drop the networks running through chunks that have unloaded. */
+	private static final int CHUNK_PRUNE_INTERVAL = 20;
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (WireNetworkRegistry registry : REGISTRIES.values()) {
+			if (registry.world.getTime() % CHUNK_PRUNE_INTERVAL == 0) registry.pruneUnloadedChunks();
+		}
+	};
+
+	private final World world;
+	private final Map<BlockPos, WireNetwork> byWire = new HashMap<>();
+	/** Every network, mapped to the chunks its wires are in. */
+	private final Map<WireNetwork, long[]> chunksOf = new HashMap<>();
+	private final Long2ObjectOpenHashMap<List<WireNetwork>> byChunk = new Long2ObjectOpenHashMap<>();
+	private final BlockPos.Mutable chunkProbe = new BlockPos.Mutable();
+	private final BlockPos.Mutable climbProbe = new BlockPos.Mutable();
+
+	private WireNetworkRegistry(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * @return the registry for a server world. Client worlds don't keep networks; search them directly instead.
+	 */
+	public static WireNetworkRegistry get(World world) {
+		return REGISTRIES.get(world);
+	}
+
+	/**
+	 * @param wire the position of a cable or scaffold.
+	 * @return the network the wire belongs to, building it if it isn't known yet.
+	 */
+	public WireNetwork getNetwork(BlockPos wire) {
+		WireNetwork network = byWire.get(wire);
+		if (network != null) return network;
+
+		network = WireNetwork.build(world, wire);
+		for (BlockPos pos : network.getWires()) {
+			WireNetwork old = byWire.put(pos, network);
+			if (old != null && old != network) remove(old);
+		}
+		LongOpenHashSet chunks = new LongOpenHashSet();
+		for (BlockPos pos : network.getWires()) {
+			chunks.add(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+		}
+		long[] keys = chunks.toLongArray();
+		chunksOf.put(network, keys);
+		for (long key : keys) {
+			byChunk.computeIfAbsent(key, k -> new ArrayList<>(1)).add(network);
+		}
+		WireSync.get(world).track(network);
+		return network;
+	}
+
+	/**
+	 * Called when a wire gets a neighbor update. Only drops its network if the update changed what the wire can connect
+	 * to. Otherwise, if the update came from something other than our own blocks, wakes the modules reading the network
+	 * and resends its value, since it may be an IR source from another mod that doesn't do either itself.
+	 * @param source the block the update came from.
+	 */
+	public void onNeighborChanged(BlockPos wire, Block source) {
+		WireNetwork network = byWire.get(wire);
+		if (network == null) return;
+		if (network.hasTopologyChanged(world, wire)) {
+			remove(network);
+		} else if (!(source instanceof ModuleBase) && !IRBlockRole.of(source).isWire()) {
+			wakeEndpoints(network);
+			WireSync.get(world).markChanged(network);
+		}
+	}
+
+	/**
+	 * Called before any block in a server world is set. Cables climb onto the blocks diagonally above and below them,
+	 * but nothing notifies a cable when one of those changes, so a network with a cable that could climb to the
+	 * indicated position is dropped here whenever the block there changes.
+	 */
+	public static void onBlockChanging(World world, BlockPos pos, BlockState state) {
+		WireNetworkRegistry registry = REGISTRIES.getIfPresent(world);
+		if (registry == null || registry.byWire.isEmpty()) return;
+		registry.checkClimbs(pos, state);
+	}
+
+	private void checkClimbs(BlockPos pos, BlockState state) {
+		List<WireNetwork> climbing = null;
+		for (Direction facing : PLANAR_FACINGS) {
+			for (int dy = -1; dy <= 1; dy += 2) {
+				climbProbe.set(pos.getX() - PackedPos.offsetX(facing), pos.getY() - dy, pos.getZ() - PackedPos.offsetZ(facing));
+				WireNetwork network = byWire.get(climbProbe);
+				if (network == null) continue;
+				if (climbing == null) {
+					//Only look the old block up once a network could care
+					if (world.getBlockState(pos).getBlock() == state.getBlock()) return;
+					climbing = new ArrayList<>(2);
+				}
+				if (!climbing.contains(network)) climbing.add(network);
+			}
+		}
+		if (climbing == null) return;
+		for (WireNetwork network : climbing) {
+			if (network.isValid()) remove(network);
+		}
+	}
+
+	/**
+	 * Drops any network with a wire in or next to (including diagonally) the indicated position.
+	 * Blocks that add or remove IR connections without being adjacent to a wire should call this when placed or broken.
+	 */
+	public void invalidateAround(BlockPos pos) {
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				for (int z = -1; z <= 1; z++) {
+					WireNetwork network = byWire.get(pos.add(x, y, z));
+					if (network != null) remove(network);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wakes every module that might read a signal coming out of the indicated position: modules next to it (including
+	 * diagonally, for signals stepping down off a module) and every module on a network with a wire next to it.
+	 */
+	public void wakeReaders(BlockPos source) {
+		List<WireNetwork> woken = new ArrayList<>(2);
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				for (int z = -1; z <= 1; z++) {
+					BlockPos pos = source.add(x, y, z);
+					wakeModule(pos);
+					WireNetwork network = byWire.get(pos);
+					if (network != null && !woken.contains(network)) {
+						wakeEndpoints(network);
+						WireSync.get(world).markChanged(network);
+						woken.add(network);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resends the value of every network with a wire next to (including diagonally) the indicated position, if it changed.
+	 * For modules woken by their heartbeat, whose inputs may have been changed by something that never said so.
+	 */
+	public void markChangedAround(BlockPos pos) {
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				for (int z = -1; z <= 1; z++) {
+					WireNetwork network = byWire.get(pos.add(x, y, z));
+					if (network != null) WireSync.get(world).markChanged(network);
+				}
+			}
+		}
+	}
+
+	private void wakeEndpoints(WireNetwork network) {
+		for (Endpoint endpoint : network.getEndpoints()) {
+			wakeModule(endpoint.pos);
+		}
+	}
+
+	private void wakeModule(BlockPos pos) {
+		BlockEntity be = world.getBlockEntity(pos);
+		if (be instanceof IRComponentBlockEntity) ((IRComponentBlockEntity)be).wake();
+	}
+
+	private void remove(WireNetwork network) {
+		forget(network);
+		//Whatever reads this network may be about to see different inputs
+		wakeEndpoints(network);
+		IREngine.get(world).invalidateCircuits(network.getWires());
+	}
+
+	private void forget(WireNetwork network) {
+		network.invalidate();
+		WireSync.get(world).untrack(network);
+		for (BlockPos pos : network.getWires()) {
+			if (byWire.get(pos) == network) byWire.remove(pos);
+		}
+		long[] keys = chunksOf.remove(network);
+		if (keys == null) return;
+		for (long key : keys) {
+			List<WireNetwork> inChunk = byChunk.get(key);
+			if (inChunk == null) continue;
+			inChunk.remove(network);
+			if (inChunk.isEmpty()) byChunk.remove(key);
+		}
+	}
+
+	/**
+	 * Drops every network with a wire in a chunk that has unloaded. Nothing's left to wake or recompile there, and what
+	 * is still loaded rebuilds its networks the next time it reads from them.
+	 */
+	private void pruneUnloadedChunks() {
+		List<WireNetwork> unloaded = null;
+		for (Long2ObjectMap.Entry<List<WireNetwork>> entry : byChunk.long2ObjectEntrySet()) {
+			long chunk = entry.getLongKey();
+			//Same packing as ChunkPos.toLong
+			if (world.isBlockLoaded(chunkProbe.set((int) chunk << 4, 0, (int) (chunk >> 32) << 4))) continue;
+			if (unloaded == null) unloaded = new ArrayList<>();
+			unloaded.addAll(entry.getValue());
+		}
+		if (unloaded == null) return;
+		for (WireNetwork network : unloaded) {
+			if (network.isValid()) forget(network);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package com.elytradev.infraredstone.logic.network;
+
+import com.elytradev.infraredstone.util.ChunkWatchers;
+import com.elytradev.infraredstone.util.InfraRedstoneNetworking;
+import com.elytradev.infraredstone.util.ModuleSyncQueue;
+import com.elytradev.infraredstone.util.PerWorld;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.network.packet.CustomPayloadClientPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Sends clients the value on each wire network they can see, so they can show it without searching the wires
+ * themselves. A player is sent a network's wires once, with {@link InfraRedstoneNetworking#WIRE_NETWORK}, and after
+ * that only its value when it changes, with {@link InfraRedstoneNetworking#WIRE_VALUES}; one number per network, no
+ * matter how many cables it has.
+ * <p>
+ * Only networks the {@link WireNetworkRegistry} knows about are synced, which is every network a module reads from.
+ */
+public class WireSync {
+	private static final PerWorld<WireSync> SYNCS = PerWorld.create("Wire networks are only synced from the server", WireSync::new);
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (WireSync sync : SYNCS.values()) {
+			sync.tick();
+		}
+	};
+
+	private final World world;
+	/** Every tracked network, mapped to the chunks its wires are in. */
+	private final Map<WireNetwork, long[]> networks = new HashMap<>();
+	private final Long2ObjectOpenHashMap<List<WireNetwork>> byChunk = new Long2ObjectOpenHashMap<>();
+	/** The value each network was last sent with. */
+	private final Map<WireNetwork, Integer> synced = new HashMap<>();
+	private final Set<WireNetwork> changed = new LinkedHashSet<>();
+	private final IntOpenHashSet removed = new IntOpenHashSet();
+	/** The networks each player has been sent the wires of. */
+	private final Map<ServerPlayerEntity, IntOpenHashSet> known = new HashMap<>();
+
+	private WireSync(World world) {
+		this.world = world;
+	}
+
+	public static WireSync get(World world) {
+		return SYNCS.get(world);
+	}
+
+	void track(WireNetwork network) {
+		LongOpenHashSet chunks = new LongOpenHashSet();
+		for (BlockPos wire : network.getWires()) {
+			chunks.add(ChunkPos.toLong(wire.getX() >> 4, wire.getZ() >> 4));
+		}
+		long[] keys = chunks.toLongArray();
+		networks.put(network, keys);
+		for (long key : keys) {
+			byChunk.computeIfAbsent(key, k -> new ArrayList<>(1)).add(network);
+		}
+		changed.add(network);
+	}
+
+	void untrack(WireNetwork network) {
+		long[] keys = networks.remove(network);
+		if (keys == null) return;
+		for (long key : keys) {
+			List<WireNetwork> inChunk = byChunk.get(key);
+			if (inChunk == null) continue;
+			inChunk.remove(network);
+			if (inChunk.isEmpty()) byChunk.remove(key);
+		}
+		synced.remove(network);
+		changed.remove(network);
+		removed.add(network.getId());
+	}
+
+	/**
+	 * Checks the network's value at the end of the tick, and sends it to everyone who can see it if it changed.
+	 */
+	void markChanged(WireNetwork network) {
+		if (networks.containsKey(network)) changed.add(network);
+	}
+
+	private void tick() {
+		if (world.getTime() % 20 == 0) known.keySet().retainAll(world.getPlayers(ServerPlayerEntity.class, player -> true));
+		ChunkWatchers index = ChunkWatchers.get(world);
+		Map<ServerPlayerEntity, Batch> batches = new HashMap<>();
+
+		if (!removed.isEmpty()) {
+			for (Map.Entry<ServerPlayerEntity, IntOpenHashSet> entry : known.entrySet()) {
+				for (int id : removed) {
+					if (entry.getValue().remove(id)) batches.computeIfAbsent(entry.getKey(), key -> new Batch()).remove(id);
+				}
+			}
+			removed.clear();
+		}
+
+		//Whoever just came into view of a network gets its wires, or its value if they've seen it before
+		for (ChunkWatchers.Entered entered : index.getEntered()) {
+			List<WireNetwork> inChunk = byChunk.get(ChunkPos.toLong(entered.chunkX, entered.chunkZ));
+			if (inChunk == null) continue;
+			for (WireNetwork network : inChunk) {
+				if (changed.contains(network)) continue;
+				send(entered.player, network, true, batches);
+			}
+		}
+
+		if (!changed.isEmpty()) {
+			Set<ServerPlayerEntity> watchers = new LinkedHashSet<>();
+			for (WireNetwork network : changed) {
+				if (!network.isValid()) continue;
+				network.prepare(world);
+				int value = network.getTotal();
+				Integer last = synced.put(network, value);
+				boolean valueChanged = last == null || last != value;
+
+				watchers.clear();
+				for (long key : networks.get(network)) {
+					//Unpacks ChunkPos.toLong
+					watchers.addAll(index.getWatchers((int) key, (int) (key >>> 32)));
+				}
+				for (ServerPlayerEntity player : watchers) {
+					send(player, network, valueChanged, batches);
+				}
+			}
+			changed.clear();
+		}
+
+		for (Map.Entry<ServerPlayerEntity, Batch> entry : batches.entrySet()) {
+			entry.getValue().send(entry.getKey());
+		}
+	}
+
+	private void send(ServerPlayerEntity player, WireNetwork network, boolean sendValue, Map<ServerPlayerEntity, Batch> batches) {
+		IntOpenHashSet seen = known.computeIfAbsent(player, key -> new IntOpenHashSet());
+		Integer value = synced.get(network);
+		if (value == null) return; //Not checked yet; it's in changed, and gets sent along with that
+		if (seen.add(network.getId())) {
+			batches.computeIfAbsent(player, key -> new Batch()).define(network, value);
+		} else if (sendValue) {
+			batches.computeIfAbsent(player, key -> new Batch()).value(network, value);
+		}
+	}
+
+	/**
+	 * One player's wire packets for a tick.
+	 * <ul>
+	 * <li>{@link InfraRedstoneNetworking#WIRE_NETWORK}: per network, its id, value, and wire count as varints, then
+	 * each wire as three zigzag varint offsets from the one before it (the first from the origin).</li>
+	 * <li>{@link InfraRedstoneNetworking#WIRE_VALUES}: a varint count, then an id and value varint for each.</li>
+	 * <li>{@link InfraRedstoneNetworking#WIRE_REMOVE}: a varint count, then each network id as a varint.</li>
+	 * </ul>
+	 */
+	private static class Batch {
+		private final List<PacketByteBuf> definitions = new ArrayList<>();
+		private final PacketByteBuf values = new PacketByteBuf(Unpooled.buffer());
+		private int valueCount;
+		private final PacketByteBuf removals = new PacketByteBuf(Unpooled.buffer());
+		private int removalCount;
+
+		void define(WireNetwork network, int value) {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			buf.writeVarInt(network.getId());
+			buf.writeVarInt(value);
+			buf.writeVarInt(network.getWires().size());
+			int lastX = 0;
+			int lastY = 0;
+			int lastZ = 0;
+			for (BlockPos wire : network.getWires()) {
+				buf.writeVarInt(ModuleSyncQueue.zigzag(wire.getX() - lastX));
+				buf.writeVarInt(ModuleSyncQueue.zigzag(wire.getY() - lastY));
+				buf.writeVarInt(ModuleSyncQueue.zigzag(wire.getZ() - lastZ));
+				lastX = wire.getX();
+				lastY = wire.getY();
+				lastZ = wire.getZ();
+			}
+			definitions.add(buf);
+		}
+
+		void value(WireNetwork network, int value) {
+			values.writeVarInt(network.getId());
+			values.writeVarInt(value);
+			valueCount++;
+		}
+
+		void remove(int id) {
+			removals.writeVarInt(id);
+			removalCount++;
+		}
+
+		void send(ServerPlayerEntity player) {
+			//Removals first, so wires that moved to a rebuilt network this tick end up on the new one
+			if (removalCount > 0) player.networkHandler.sendPacket(new CustomPayloadClientPacket(InfraRedstoneNetworking.WIRE_REMOVE, prefix(removalCount, removals)));
+			for (PacketByteBuf definition : definitions) {
+				player.networkHandler.sendPacket(new CustomPayloadClientPacket(InfraRedstoneNetworking.WIRE_NETWORK, definition));
+			}
+			if (valueCount > 0) player.networkHandler.sendPacket(new CustomPayloadClientPacket(InfraRedstoneNetworking.WIRE_VALUES, prefix(valueCount, values)));
+		}
+
+		private static PacketByteBuf prefix(int count, PacketByteBuf records) {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			buf.writeVarInt(count);
+			buf.writeBytes(records);
+			return buf;
+		}
+	}
+}
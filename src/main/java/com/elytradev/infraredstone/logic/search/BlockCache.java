@@ -0,0 +1,145 @@
+package com.elytradev.infraredstone.logic.search;
+
+import com.elytradev.infraredstone.logic.InRedLogic;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the block states and side solidity a search has already looked up, so walking back over a position is an
+ * array read instead of a trip through the chunk map. Only valid while nothing in the world changes, so it's
+ * {@link #reset} for every search.
+ * <p>
+ * Same generation-stamped layout as {@link LongHashSet}, with each position's state and solidity alongside it.
+ */
+public class BlockCache {
+	private static final int CHUNK_SLOTS = 16;
+	/** Solidity bits: the low six say which sides have been checked, the next six which of those are solid. */
+	private static final int SOLID_SHIFT = 6;
+
+	private World world;
+	private final BlockPos.Mutable lookup = new BlockPos.Mutable();
+
+	private long[] keys;
+	private int[] stamps;
+	private BlockState[] states;
+	private int[] solidity;
+	private int mask;
+	private int size;
+	private int generation = 1;
+
+	private final long[] chunkKeys = new long[CHUNK_SLOTS];
+	private final Chunk[] chunks = new Chunk[CHUNK_SLOTS];
+
+	/** @param capacity starting number of slots. Rounded up to a power of two. */
+	public BlockCache(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+		keys = new long[slots];
+		stamps = new int[slots];
+		states = new BlockState[slots];
+		solidity = new int[slots];
+		mask = slots - 1;
+	}
+
+	/** Forgets everything, and starts caching for the indicated world, or for none if it's null. */
+	public void reset(World world) {
+		this.world = world;
+		Arrays.fill(chunks, null);
+		size = 0;
+		generation++;
+		if (generation == 0) {
+			// Wrapped all the way around; old stamps could look current again
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	public BlockState getBlockState(int x, int y, int z) {
+		return states[slot(x, y, z)];
+	}
+
+	/** Same as {@link InRedLogic#isSideSolid}, cached. */
+	public boolean isSideSolid(int x, int y, int z, Direction dir) {
+		int slot = slot(x, y, z);
+		int known = 1 << dir.ordinal();
+		int bits = solidity[slot];
+		if ((bits & known) == 0) {
+			BlockPos pos = lookup.set(x, y, z);
+			bits |= known;
+			if (InRedLogic.isSideSolid(world, pos, states[slot], dir)) bits |= known << SOLID_SHIFT;
+			solidity[slot] = bits;
+		}
+		return (bits & (known << SOLID_SHIFT)) != 0;
+	}
+
+	/** @return the slot for the indicated position, looking its state up first if this search hasn't yet. */
+	private int slot(int x, int y, int z) {
+		long key = PackedPos.pack(x, y, z, PackedPos.NO_FACING);
+		int slot = hash(key) & mask;
+		while (stamps[slot] == generation) {
+			if (keys[slot] == key) return slot;
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		stamps[slot] = generation;
+		states[slot] = lookUp(x, y, z);
+		solidity[slot] = 0;
+		size++;
+		if (size * 2 > keys.length) {
+			grow();
+			return slot(x, y, z);
+		}
+		return slot;
+	}
+
+	private BlockState lookUp(int x, int y, int z) {
+		if (y < 0 || y > 255) return Blocks.VOID_AIR.getDefaultState();
+		int chunkX = x >> 4;
+		int chunkZ = z >> 4;
+		long chunkKey = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+		int chunkSlot = (chunkX * 31 + chunkZ) & (CHUNK_SLOTS - 1);
+		Chunk chunk = chunks[chunkSlot];
+		if (chunk == null || chunkKeys[chunkSlot] != chunkKey) {
+			chunk = world.getChunk(chunkX, chunkZ);
+			chunks[chunkSlot] = chunk;
+			chunkKeys[chunkSlot] = chunkKey;
+		}
+		return chunk.getBlockState(lookup.set(x, y, z));
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		BlockState[] oldStates = states;
+		int[] oldSolidity = solidity;
+		int oldGeneration = generation;
+
+		keys = new long[oldKeys.length * 2];
+		stamps = new int[oldKeys.length * 2];
+		states = new BlockState[oldKeys.length * 2];
+		solidity = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		generation = 1;
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldStamps[i] != oldGeneration) continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while (stamps[slot] == generation) slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			stamps[slot] = generation;
+			states[slot] = oldStates[i];
+			solidity[slot] = oldSolidity[i];
+			size++;
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
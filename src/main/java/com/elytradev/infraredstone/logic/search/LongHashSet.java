@@ -0,0 +1,88 @@
+package com.elytradev.infraredstone.logic.search;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive longs, meant to be cleared and reused.
+ * Slots are stamped with a generation number, so {@link #clear()} is O(1) and never touches the arrays.
+ */
+public class LongHashSet {
+	private long[] keys;
+	private int[] stamps;
+	private int mask;
+	private int size;
+	private int generation = 1;
+
+	public LongHashSet() {
+		this(64);
+	}
+
+	/** @param capacity starting number of slots. Rounded up to a power of two. */
+	public LongHashSet(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+		keys = new long[slots];
+		stamps = new int[slots];
+		mask = slots - 1;
+	}
+
+	/** @return true if the key wasn't already present. */
+	public boolean add(long key) {
+		int slot = hash(key) & mask;
+		while (stamps[slot] == generation) {
+			if (keys[slot] == key) return false;
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		stamps[slot] = generation;
+		size++;
+		if (size * 2 > keys.length) grow();
+		return true;
+	}
+
+	public boolean contains(long key) {
+		int slot = hash(key) & mask;
+		while (stamps[slot] == generation) {
+			if (keys[slot] == key) return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+		generation++;
+		if (generation == 0) {
+			// Wrapped all the way around; old stamps could look current again
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int oldGeneration = generation;
+
+		keys = new long[oldKeys.length * 2];
+		stamps = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		generation = 1;
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldStamps[i] == oldGeneration) add(oldKeys[i]);
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,55 @@
+package com.elytradev.infraredstone.logic.search;
+
+/**
+ * FIFO queue of primitive longs backed by a growable ring buffer. O(1) push and pop, no allocation once it's big enough.
+ */
+public class LongRingQueue {
+	private long[] buffer;
+	private int head;
+	private int size;
+
+	public LongRingQueue() {
+		this(64);
+	}
+
+	/** @param capacity starting capacity. Rounded up to a power of two. */
+	public LongRingQueue(int capacity) {
+		buffer = new long[Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1];
+	}
+
+	public void add(long value) {
+		if (size == buffer.length) grow();
+		buffer[(head + size) & (buffer.length - 1)] = value;
+		size++;
+	}
+
+	public long remove() {
+		if (size == 0) throw new IllegalStateException("Queue is empty");
+		long value = buffer[head];
+		head = (head + 1) & (buffer.length - 1);
+		size--;
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private void grow() {
+		long[] grown = new long[buffer.length * 2];
+		for (int i = 0; i < size; i++) {
+			grown[i] = buffer[(head + i) & (buffer.length - 1)];
+		}
+		buffer = grown;
+		head = 0;
+	}
+}
@@ -0,0 +1,82 @@
+package com.elytradev.infraredstone.logic.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+/**
+ * Packs a block position and an optional facing into one long, so searches can track them without allocating.
+ * Layout, high to low: 26 bits of X, 26 bits of Z, 9 bits of Y (-256 to 255), 3 bits of facing.
+ */
+public final class PackedPos {
+	private static final int X_SHIFT = 38;
+	private static final int Z_SHIFT = 12;
+	private static final int Y_SHIFT = 3;
+	private static final long X_MASK = (1L << 26) - 1;
+	private static final long Z_MASK = (1L << 26) - 1;
+	private static final long Y_MASK = (1L << 9) - 1;
+	private static final long FACING_MASK = 0b111;
+
+	/** Facing value for keys that only care about position. Never collides with a real {@link Direction} id. */
+	public static final int NO_FACING = 0b111;
+
+	/** Cached, since {@link Direction#values()} copies the array every call. */
+	public static final Direction[] DIRECTIONS = Direction.values();
+
+	private static final int[] OFFSET_X = new int[DIRECTIONS.length];
+	private static final int[] OFFSET_Y = new int[DIRECTIONS.length];
+	private static final int[] OFFSET_Z = new int[DIRECTIONS.length];
+
+	static {
+		BlockPos origin = new BlockPos(0, 0, 0);
+		for (Direction dir : DIRECTIONS) {
+			BlockPos offset = origin.offset(dir);
+			OFFSET_X[dir.ordinal()] = offset.getX();
+			OFFSET_Y[dir.ordinal()] = offset.getY();
+			OFFSET_Z[dir.ordinal()] = offset.getZ();
+		}
+	}
+
+	private PackedPos() {}
+
+	public static int offsetX(Direction dir) {
+		return OFFSET_X[dir.ordinal()];
+	}
+
+	public static int offsetY(Direction dir) {
+		return OFFSET_Y[dir.ordinal()];
+	}
+
+	public static int offsetZ(Direction dir) {
+		return OFFSET_Z[dir.ordinal()];
+	}
+
+	public static long pack(int x, int y, int z, int facing) {
+		return ((x & X_MASK) << X_SHIFT) | ((z & Z_MASK) << Z_SHIFT) | ((y & Y_MASK) << Y_SHIFT) | (facing & FACING_MASK);
+	}
+
+	public static long pack(int x, int y, int z, Direction facing) {
+		return pack(x, y, z, facing.ordinal());
+	}
+
+	public static int getX(long packed) {
+		return (int) (packed >> X_SHIFT);
+	}
+
+	public static int getY(long packed) {
+		return (int) (packed << (64 - Z_SHIFT) >> (64 - Z_SHIFT + Y_SHIFT));
+	}
+
+	public static int getZ(long packed) {
+		return (int) (packed << (64 - X_SHIFT) >> (64 - X_SHIFT + Z_SHIFT));
+	}
+
+	public static Direction getFacing(long packed) {
+		int id = (int) (packed & FACING_MASK);
+		return (id == NO_FACING) ? null : DIRECTIONS[id];
+	}
+
+	/** @return the same position with its facing stripped, for position-only sets. */
+	public static long positionOf(long packed) {
+		return packed | FACING_MASK;
+	}
+}
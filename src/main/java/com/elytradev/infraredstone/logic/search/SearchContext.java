@@ -0,0 +1,44 @@
+package com.elytradev.infraredstone.logic.search;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Scratch space for one wire search, kept per thread so searches don't allocate once it's warmed up.
+ * Always {@link #release()} a context obtained from {@link #acquire}.
+ */
+public class SearchContext {
+	private static final ThreadLocal<SearchContext> CONTEXT = ThreadLocal.withInitial(SearchContext::new);
+
+	/** Wire positions already walked. */
+	public final LongHashSet traversed = new LongHashSet(256);
+	/** Non-wire endpoints (position and facing) already counted. */
+	public final LongHashSet rejected = new LongHashSet(64);
+	public final LongRingQueue queue = new LongRingQueue(256);
+	/** States and solidity of every position this search has looked at. */
+	public final BlockCache blocks = new BlockCache(512);
+	/** Reusable cursor for world lookups. */
+	public final BlockPos.Mutable cursor = new BlockPos.Mutable();
+
+	private boolean inUse;
+
+	/**
+	 * @return this thread's context, or a fresh one if this thread is already searching
+	 * (for instance, a third-party signal block that runs its own search while we read it).
+	 */
+	public static SearchContext acquire(World world) {
+		SearchContext context = CONTEXT.get();
+		if (context.inUse) context = new SearchContext();
+		context.inUse = true;
+		context.traversed.clear();
+		context.rejected.clear();
+		context.queue.clear();
+		context.blocks.reset(world);
+		return context;
+	}
+
+	public void release() {
+		inUse = false;
+		blocks.reset(null); // Don't keep the world alive from a thread-local
+	}
+}
@@ -0,0 +1,20 @@
+package com.elytradev.infraredstone.mixin;
+
+import com.elytradev.infraredstone.util.PerWorld;
+import net.minecraft.server.MinecraftServer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Lets go of everything kept per world as soon as the server has saved and closed them, instead of whenever the next
+ * server happens to tick.
+ */
+@Mixin(MinecraftServer.class)
+public abstract class MinecraftServerMixin {
+	@Inject(method = "shutdown", at = @At("TAIL"))
+	private void onShutdown(CallbackInfo info) {
+		PerWorld.onServerStopped((MinecraftServer) (Object) this);
+	}
+}
@@ -0,0 +1,22 @@
+package com.elytradev.infraredstone.mixin;
+
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Tells wire networks about block changes that don't reach their cables through neighbor updates.
+ */
+@Mixin(World.class)
+public abstract class WorldMixin {
+	@Inject(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;I)Z", at = @At("HEAD"))
+	private void onSetBlockState(BlockPos pos, BlockState state, int flags, CallbackInfoReturnable<Boolean> info) {
+		World world = (World) (Object) this;
+		if (!world.isClient) WireNetworkRegistry.onBlockChanging(world, pos, state);
+	}
+}
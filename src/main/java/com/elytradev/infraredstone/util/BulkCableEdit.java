@@ -0,0 +1,142 @@
+package com.elytradev.infraredstone.util;
+
+import com.elytradev.infraredstone.block.BlockBase;
+import com.elytradev.infraredstone.block.InfraRedstoneCable;
+import com.elytradev.infraredstone.logic.IRBlockRole;
+import com.elytradev.infraredstone.logic.network.WireNetworkRegistry;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds back cable and scaffold updates inside a region of a server world while lots of blocks are set at once, like
+ * when a schematic is pasted. Inside the region, cables and scaffolds don't work out their connections or notify their
+ * neighbors as they're placed, broken or updated; they're only noted down. Closing the edit then resolves every noted
+ * block's connections in one pass, and notifies the blocks just outside the region once.
+ * <pre>
+ * try (BulkCableEdit edit = BulkCableEdit.begin(world, from, to)) {
+ *     //set blocks as usual
+ * }
+ * </pre>
+ * Anything else in the region, modules included, updates as usual.
+ */
+public class BulkCableEdit implements AutoCloseable {
+	private static final PerWorld<List<BulkCableEdit>> ACTIVE = PerWorld.create("Bulk edits can only be made on the server", key -> new ArrayList<>());
+
+	private static final Direction[] PLANAR_FACINGS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private final World world;
+	private final BlockPos min;
+	private final BlockPos max;
+	private final Set<BlockPos> deferred = new LinkedHashSet<>();
+	private boolean closed;
+
+	private BulkCableEdit(World world, BlockPos min, BlockPos max) {
+		this.world = world;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Starts holding back updates in the box between two corners, inclusive. Always {@link #close()} the edit when done.
+	 */
+	public static BulkCableEdit begin(World world, BlockPos from, BlockPos to) {
+		BlockPos min = new BlockPos(Math.min(from.getX(), to.getX()), Math.min(from.getY(), to.getY()), Math.min(from.getZ(), to.getZ()));
+		BlockPos max = new BlockPos(Math.max(from.getX(), to.getX()), Math.max(from.getY(), to.getY()), Math.max(from.getZ(), to.getZ()));
+		BulkCableEdit edit = new BulkCableEdit(world, min, max);
+		ACTIVE.get(world).add(edit);
+		return edit;
+	}
+
+	/**
+	 * @return the edit holding back updates at the indicated position, or null if there isn't one.
+	 */
+	public static BulkCableEdit getSuspending(World world, BlockPos pos) {
+		if (ACTIVE.isEmpty()) return null;
+		List<BulkCableEdit> edits = ACTIVE.getIfPresent(world);
+		if (edits == null || edits.isEmpty()) return null;
+		for (BulkCableEdit edit : edits) {
+			if (edit.contains(pos)) return edit;
+		}
+		return null;
+	}
+
+	public boolean contains(BlockPos pos) {
+		return pos.getX() >= min.getX() && pos.getX() <= max.getX()
+				&& pos.getY() >= min.getY() && pos.getY() <= max.getY()
+				&& pos.getZ() >= min.getZ() && pos.getZ() <= max.getZ();
+	}
+
+	/**
+	 * Notes down a cable or scaffold position whose update was held back, to resolve when the edit closes.
+	 */
+	public void defer(BlockPos pos) {
+		deferred.add(pos.toImmutable());
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		closed = true;
+		List<BulkCableEdit> edits = ACTIVE.getIfPresent(world);
+		if (edits != null) edits.remove(this);
+		if (deferred.isEmpty()) return;
+
+		//Everything that could connect to a deferred position: the deferred blocks themselves, plus the cables and
+		//scaffolds next to them, which never heard about the changes
+		WireNetworkRegistry registry = WireNetworkRegistry.get(world);
+		Set<BlockPos> resolve = new LinkedHashSet<>(deferred);
+		//Each block just outside the region, mapped to the deferred position next to it
+		Map<BlockPos, BlockPos> outside = new LinkedHashMap<>();
+		for (BlockPos pos : deferred) {
+			registry.invalidateAround(pos);
+			for (Direction dir : Direction.values()) {
+				BlockPos neighbor = pos.offset(dir);
+				if (contains(neighbor)) {
+					if (IRBlockRole.of(world.getBlockState(neighbor)).isWire()) resolve.add(neighbor);
+				} else {
+					outside.putIfAbsent(neighbor, pos);
+				}
+			}
+			for (Direction dir : PLANAR_FACINGS) {
+				BlockPos side = pos.offset(dir);
+				collectDiagonal(side.up(), pos, resolve, outside);
+				collectDiagonal(side.down(), pos, resolve, outside);
+			}
+		}
+
+		for (BlockPos pos : resolve) {
+			BlockState state = world.getBlockState(pos);
+			if (!(state.getBlock() instanceof BlockBase)) continue;
+			if (state.getBlock() instanceof InfraRedstoneCable && !((InfraRedstoneCable) state.getBlock()).canBlockStay(world, pos)) {
+				world.breakBlock(pos, true);
+				continue;
+			}
+			BlockState connected = ((BlockBase) state.getBlock()).getConnectedState(world, pos, state);
+			if (connected != state) world.setBlockState(pos, connected, 2);
+		}
+
+		//The blocks just outside heard nothing while the edit was open, so tell them once now
+		for (Map.Entry<BlockPos, BlockPos> entry : outside.entrySet()) {
+			world.updateNeighbor(entry.getKey(), world.getBlockState(entry.getValue()).getBlock(), entry.getValue());
+		}
+	}
+
+	/** Diagonal neighbors only matter if they're cables, which climb onto blocks above and below them. */
+	private void collectDiagonal(BlockPos pos, BlockPos from, Set<BlockPos> resolve, Map<BlockPos, BlockPos> outside) {
+		if (IRBlockRole.of(world.getBlockState(pos)) != IRBlockRole.WIRE) return;
+		if (contains(pos)) {
+			resolve.add(pos);
+		} else {
+			outside.putIfAbsent(pos, from);
+		}
+	}
+}
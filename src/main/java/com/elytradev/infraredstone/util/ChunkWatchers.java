@@ -0,0 +1,232 @@
+package com.elytradev.infraredstone.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of which players are watching each chunk of a server world, so module sync can find its recipients
+ * without testing every player in the world.
+ * <p>
+ * A player watches the chunks vanilla's chunk tracker has sent them, limited to the square within
+ * {@link InfraRedstoneConfig#visualSyncRadius} of the chunk they're in. When a player joins, changes chunks, or the
+ * radius changes, the square around them is checked against the tracker. Chunks the tracker hasn't sent yet are
+ * checked again every tick for a second, and each player's square is checked again once a second, for chunks the tracker
+ * dropped or sent later than that. Otherwise a player costs one comparison a tick, and looking watchers up costs nothing.
+ * <p>
+ * The chunks players newly started watching this tick are kept in {@link #getEntered}, for anything that has to catch
+ * them up on state their chunk data doesn't carry.
+ */
+public class ChunkWatchers {
+	private static final PerWorld<ChunkWatchers> WATCHERS = PerWorld.create("Chunk watchers are only tracked on the server", key -> {
+		ChunkWatchers watchers = new ChunkWatchers(key);
+		watchers.update();
+		return watchers;
+	});
+	/** How often, in ticks, each player's watched chunks are all checked against the tracker again. */
+	private static final int RECHECK_INTERVAL = 20;
+	/** How long, in ticks, chunks the tracker hasn't sent yet are checked every tick, before leaving them to the recheck. */
+	private static final int PENDING_TICKS = 20;
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (ChunkWatchers watchers : WATCHERS.values()) {
+			watchers.update();
+		}
+	};
+
+	private final ServerWorld world;
+	private final Long2ObjectOpenHashMap<List<ServerPlayerEntity>> byChunk = new Long2ObjectOpenHashMap<>();
+	private final Map<ServerPlayerEntity, Watch> watches = new HashMap<>();
+	private final List<Entered> entered = new ArrayList<>();
+	private boolean clipped;
+	private int ticks;
+
+	private ChunkWatchers(World world) {
+		this.world = (ServerWorld) world;
+	}
+
+	public static ChunkWatchers get(World world) {
+		return WATCHERS.get(world);
+	}
+
+	/**
+	 * @return the players watching a chunk. Don't modify it; it's the index's own list.
+	 */
+	public List<ServerPlayerEntity> getWatchers(int chunkX, int chunkZ) {
+		List<ServerPlayerEntity> players = byChunk.get(ChunkPos.toLong(chunkX, chunkZ));
+		return (players == null) ? Collections.emptyList() : players;
+	}
+
+	/**
+	 * @return every chunk a player started watching this tick. Don't modify it.
+	 */
+	public List<Entered> getEntered() {
+		return entered;
+	}
+
+	/**
+	 * @return true if players watch fewer chunks than they have loaded, because the visual sync radius is closer than
+	 * the view distance. Then they can move up to modules they already have the chunk of, but haven't been sent changes
+	 * for.
+	 */
+	public boolean isClipped() {
+		return clipped;
+	}
+
+	private void update() {
+		ticks++;
+		//The tracker sends one ring of chunks past the view distance
+		int trackedRadius = world.getServer().getPlayerManager().getViewDistance() + 1;
+		int radius = trackedRadius;
+		int blocks = InfraRedstoneConfig.INSTANCE.visualSyncRadius;
+		if (blocks > 0) radius = Math.min(trackedRadius, (blocks + 15) / 16);
+		clipped = radius < trackedRadius;
+		entered.clear();
+
+		for (PlayerEntity entity : world.players) {
+			if (!(entity instanceof ServerPlayerEntity)) continue;
+			ServerPlayerEntity player = (ServerPlayerEntity) entity;
+			Watch watch = watches.get(player);
+			if (watch == null) {
+				watch = new Watch();
+				watches.put(player, watch);
+			} else if (watch.chunkX == player.chunkX && watch.chunkZ == player.chunkZ && watch.radius == radius) {
+				watch.lastSeen = ticks;
+				if (!watch.pending.isEmpty()) {
+					//Chunks past the world border or the tracker's ring might never be sent
+					if (ticks - watch.pendingSince > PENDING_TICKS) watch.pending.clear();
+					else checkPending(player, watch);
+				}
+				if ((ticks + player.getEntityId()) % RECHECK_INTERVAL == 0) recheck(player, watch);
+				continue;
+			}
+			watch.lastSeen = ticks;
+			rewatch(player, watch, radius);
+		}
+
+		//Anyone not seen this tick has left the world
+		for (Iterator<Map.Entry<ServerPlayerEntity, Watch>> it = watches.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<ServerPlayerEntity, Watch> entry = it.next();
+			if (entry.getValue().lastSeen == ticks) continue;
+			for (LongIterator chunks = entry.getValue().watched.iterator(); chunks.hasNext(); ) {
+				removeWatcher(chunks.nextLong(), entry.getKey());
+			}
+			it.remove();
+		}
+	}
+
+	/** Moves a player's square to the chunk they're in now, keeping whatever chunks it still covers. */
+	private void rewatch(ServerPlayerEntity player, Watch watch, int radius) {
+		watch.chunkX = player.chunkX;
+		watch.chunkZ = player.chunkZ;
+		watch.radius = radius;
+		watch.pending.clear();
+		watch.pendingSince = ticks;
+		for (LongIterator it = watch.watched.iterator(); it.hasNext(); ) {
+			long key = it.nextLong();
+			int x = (int) key;
+			int z = (int) (key >>> 32);
+			if (watch.contains(x, z) && isTracked(player, x, z)) continue;
+			it.remove();
+			removeWatcher(key, player);
+		}
+		for (int x = watch.chunkX - radius; x <= watch.chunkX + radius; x++) {
+			for (int z = watch.chunkZ - radius; z <= watch.chunkZ + radius; z++) {
+				long key = ChunkPos.toLong(x, z);
+				if (watch.watched.contains(key)) continue;
+				if (isTracked(player, x, z)) {
+					watch(player, watch, key);
+				} else {
+					watch.pending.add(key);
+				}
+			}
+		}
+	}
+
+	private void checkPending(ServerPlayerEntity player, Watch watch) {
+		for (LongIterator it = watch.pending.iterator(); it.hasNext(); ) {
+			long key = it.nextLong();
+			if (!isTracked(player, (int) key, (int) (key >>> 32))) continue;
+			it.remove();
+			watch(player, watch, key);
+		}
+	}
+
+	private void recheck(ServerPlayerEntity player, Watch watch) {
+		for (LongIterator it = watch.watched.iterator(); it.hasNext(); ) {
+			long key = it.nextLong();
+			if (isTracked(player, (int) key, (int) (key >>> 32))) continue;
+			it.remove();
+			removeWatcher(key, player);
+		}
+		for (int x = watch.chunkX - watch.radius; x <= watch.chunkX + watch.radius; x++) {
+			for (int z = watch.chunkZ - watch.radius; z <= watch.chunkZ + watch.radius; z++) {
+				long key = ChunkPos.toLong(x, z);
+				if (watch.watched.contains(key) || !isTracked(player, x, z)) continue;
+				watch.pending.remove(key);
+				watch(player, watch, key);
+			}
+		}
+	}
+
+	private void watch(ServerPlayerEntity player, Watch watch, long key) {
+		watch.watched.add(key);
+		byChunk.computeIfAbsent(key, k -> new ArrayList<>(2)).add(player);
+		entered.add(new Entered(player, (int) key, (int) (key >>> 32)));
+	}
+
+	private void removeWatcher(long key, ServerPlayerEntity player) {
+		List<ServerPlayerEntity> list = byChunk.get(key);
+		if (list == null) return;
+		list.remove(player);
+		if (list.isEmpty()) byChunk.remove(key);
+	}
+
+	/** @return whether vanilla's chunk tracker has sent the player the chunk. */
+	private boolean isTracked(ServerPlayerEntity player, int chunkX, int chunkZ) {
+		return world.getChunkManager().method_14154(player, chunkX, chunkZ);
+	}
+
+	private static class Watch {
+		int chunkX;
+		int chunkZ;
+		int radius;
+		int lastSeen;
+		/** The tick {@link #pending} was filled. */
+		int pendingSince;
+		/** Chunks the player is indexed under. */
+		final LongOpenHashSet watched = new LongOpenHashSet();
+		/** Chunks in the square that the tracker hasn't sent the player yet. */
+		final LongOpenHashSet pending = new LongOpenHashSet();
+
+		boolean contains(int x, int z) {
+			return Math.abs(x - chunkX) <= radius && Math.abs(z - chunkZ) <= radius;
+		}
+	}
+
+	public static class Entered {
+		public final ServerPlayerEntity player;
+		public final int chunkX;
+		public final int chunkZ;
+
+		Entered(ServerPlayerEntity player, int chunkX, int chunkZ) {
+			this.player = player;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.elytradev.infraredstone.util;
+
+import com.elytradev.infraredstone.block.BlockBase;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Collects the cables and scaffolds in a server world whose neighbors changed during a tick, and works out each one's
+ * connections once at the end of it, however many neighbor updates it got. Laying or breaking a line of cable updates
+ * each block around it a handful of times; this way each one is only recomputed, and only sent to clients, once.
+ * <p>
+ * Connections are only looks, and don't change which blocks a wire reads from, so they can wait.
+ */
+public class ConnectionUpdateQueue {
+	private static final PerWorld<ConnectionUpdateQueue> QUEUES = PerWorld.create("Connections are only queued on the server", ConnectionUpdateQueue::new);
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (ConnectionUpdateQueue queue : QUEUES.values()) {
+			queue.flush();
+		}
+	};
+
+	private final World world;
+	private final Set<BlockPos> queued = new LinkedHashSet<>();
+
+	private ConnectionUpdateQueue(World world) {
+		this.world = world;
+	}
+
+	public static ConnectionUpdateQueue get(World world) {
+		return QUEUES.get(world);
+	}
+
+	public void add(BlockPos pos) {
+		queued.add(pos.toImmutable());
+	}
+
+	private void flush() {
+		if (queued.isEmpty()) return;
+		List<BlockPos> positions = new ArrayList<>(queued);
+		queued.clear();
+		for (BlockPos pos : positions) {
+			//Looking it up would load the chunk back in, just to fix up how the cable looks
+			if (!world.isBlockLoaded(pos)) continue;
+			BlockState state = world.getBlockState(pos);
+			if (!(state.getBlock() instanceof BlockBase)) continue; //Broken since it was queued
+			BlockState connected = ((BlockBase) state.getBlock()).getConnectedState(world, pos, state);
+			//Only clients care what the connections look like, so there's no one else to notify
+			if (connected != state) world.setBlockState(pos, connected, 2);
+		}
+	}
+}
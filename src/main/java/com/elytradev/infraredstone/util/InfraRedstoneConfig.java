@@ -0,0 +1,89 @@
+package com.elytradev.infraredstone.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Server-side options, read from config/infraredstone.json. Missing options keep their defaults, and the file gets
+ * written back out with every option so new ones show up in it.
+ */
+public class InfraRedstoneConfig {
+	private static final Logger LOGGER = LogManager.getLogger("InfraRedstone");
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+	private static final File FILE = new File("config", "infraredstone.json");
+
+	public static InfraRedstoneConfig INSTANCE = new InfraRedstoneConfig();
+
+	/**
+	 * Server ticks from one IR tick to the next. At least 2: one for the IR tick, one to copy its results.
+	 */
+	public int irPeriod = 2;
+
+	/**
+	 * Start each world's IR ticks on a different server tick, to spread out the work between them.
+	 */
+	public boolean staggerWorlds = false;
+
+	/**
+	 * Compile circuits whose layout isn't changing into netlists, and evaluate those without reading the world.
+	 */
+	public boolean compiledCircuits = false;
+
+	/**
+	 * Evaluate compiled circuits on several threads at once. Only does anything with {@link #compiledCircuits} on.
+	 */
+	public boolean parallelCircuits = false;
+
+	/**
+	 * How many threads to evaluate circuits on, or 0 to use one per processor.
+	 */
+	public int parallelThreads = 0;
+
+	/**
+	 * How many times a second, at most, a module's lights are synced to clients. Changes in between are merged, and a
+	 * module that keeps changing faster is animated client-side instead. 0 syncs every change.
+	 */
+	public int moduleSyncRate = 4;
+
+	/**
+	 * How far away, in blocks, players get sent modules' lights. Rounded up to whole chunks, and never further than the
+	 * view distance. 0 uses the view distance.
+	 */
+	public int visualSyncRadius = 0;
+
+	/**
+	 * How many IR ticks a sleeping module waits before checking its inputs anyway. Neighbor updates wake modules right
+	 * away, so this only matters for IR sources from other mods that change without sending any. Lower catches those
+	 * sooner, but wakes every idle module more often; 1 or less keeps modules from sleeping at all.
+	 */
+	public int sleepHeartbeat = 20;
+
+	public static void load() {
+		if (FILE.exists()) {
+			try (Reader reader = Files.newBufferedReader(FILE.toPath(), StandardCharsets.UTF_8)) {
+				InfraRedstoneConfig loaded = GSON.fromJson(reader, InfraRedstoneConfig.class);
+				if (loaded != null) INSTANCE = loaded;
+			} catch (IOException | JsonParseException e) {
+				LOGGER.error("Couldn't read {}, using the defaults", FILE, e);
+				return;
+			}
+		}
+
+		FILE.getParentFile().mkdirs();
+		try (Writer writer = Files.newBufferedWriter(FILE.toPath(), StandardCharsets.UTF_8)) {
+			GSON.toJson(INSTANCE, writer);
+		} catch (IOException e) {
+			LOGGER.error("Couldn't write {}", FILE, e);
+		}
+	}
+}
@@ -1,28 +1,70 @@
 package com.elytradev.infraredstone.util;
 
+import com.elytradev.infraredstone.block.ModBlocks;
 import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.client.ClientWireNetworks;
+import com.elytradev.infraredstone.client.OscillatingModules;
+import com.elytradev.infraredstone.logic.network.WireSync;
 import io.netty.buffer.Unpooled;
-import net.fabricmc.api.EnvType;
-import net.fabricmc.api.Environment;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.networking.CustomPayloadPacketRegistry;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.client.MinecraftClient;
+import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.client.network.packet.CustomPayloadClientPacket;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.server.network.packet.CustomPayloadServerPacket;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.PacketByteBuf;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class InfraRedstoneNetworking implements ModInitializer {
 
 	public static final Identifier MODULE_SYNC = new Identifier("infraredstone:diode_sync");
-	public static final Identifier MODULE_REQUEST = new Identifier("infraredstone:diode_request");
+	/** Changed sync fields for a batch of modules. See {@link ModuleSyncQueue} for the layout. */
+	public static final Identifier MODULE_DELTA = new Identifier("infraredstone:module_delta");
+	/** Full states for a batch of modules, written by their {@link ModuleCodec}s. See {@link ModuleSyncQueue.StateBatch}. */
+	public static final Identifier MODULE_STATE = new Identifier("infraredstone:module_state");
+
+	/** A wire network's wires and value. See {@link WireSync} for the layouts of the wire packets. */
+	public static final Identifier WIRE_NETWORK = new Identifier("infraredstone:wire_network");
+	/** New values for wire networks the client already has. */
+	public static final Identifier WIRE_VALUES = new Identifier("infraredstone:wire_values");
+	/** Wire networks that no longer exist. */
+	public static final Identifier WIRE_REMOVE = new Identifier("infraredstone:wire_remove");
+
+	private static final Map<BlockEntityType<?>, ModuleCodec> CODECS = new HashMap<>();
+
+	/**
+	 * Syncs every module of a block entity type with a compact codec instead of NBT.
+	 */
+	public static void registerCodec(BlockEntityType<?> type, ModuleCodec codec) {
+		CODECS.put(type, codec);
+	}
+
+	/**
+	 * @return the codec modules of the indicated type are synced with, or null if they don't have one.
+	 */
+	public static ModuleCodec getCodec(BlockEntityType<?> type) {
+		return CODECS.get(type);
+	}
 
 	@Override
 	public void onInitialize() {
+		registerCodec(ModBlocks.DIODE_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.NOT_GATE_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.AND_GATE_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.XOR_GATE_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.OSCILLATOR_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.TRANSISTOR_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.SHIFTER_BE, ModuleCodec.FIELDS);
+		registerCodec(ModBlocks.ENCODER_BE, ModuleCodec.FIELDS);
+
 		CustomPayloadPacketRegistry.CLIENT.register(MODULE_SYNC, ((packetContext, packetByteBuf) -> {
 			BlockPos pos = packetByteBuf.readBlockPos();
 			CompoundTag tag = packetByteBuf.readCompoundTag();
@@ -33,26 +75,110 @@ public class InfraRedstoneNetworking implements ModInitializer {
 				}
 			}
 		}));
-		CustomPayloadPacketRegistry.SERVER.register(MODULE_REQUEST, (packetContext, packetByteBuf) -> {
-			BlockPos pos = packetByteBuf.readBlockPos();
-			BlockEntity be = packetContext.getPlayer().getEntityWorld().getBlockEntity(pos);
-			if (be instanceof IRComponentBlockEntity) {
-				syncModule((IRComponentBlockEntity) be, (ServerPlayerEntity) packetContext.getPlayer());
+		CustomPayloadPacketRegistry.CLIENT.register(MODULE_STATE, ((packetContext, packetByteBuf) -> {
+			if (packetContext.getPlayer() == null || packetContext.getPlayer().getEntityWorld() == null) return;
+			World world = packetContext.getPlayer().getEntityWorld();
+			BlockPos.Mutable pos = new BlockPos.Mutable();
+			int x = 0;
+			int y = 0;
+			int z = 0;
+			int count = packetByteBuf.readVarInt();
+			for (int i = 0; i < count; i++) {
+				x += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				y += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				z += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				boolean oscillating = packetByteBuf.readBoolean();
+				int length = packetByteBuf.readVarInt();
+				int end = packetByteBuf.readerIndex() + length;
+				BlockEntity be = world.getBlockEntity(pos.set(x, y, z));
+				ModuleCodec codec = (be == null) ? null : CODECS.get(be.getType());
+				if (be instanceof IRComponentBlockEntity && codec != null) {
+					OscillatingModules.setOscillating(be, oscillating);
+					codec.read((IRComponentBlockEntity) be, packetByteBuf);
+				}
+				//Skip to the next record, whether or not this one could be read
+				packetByteBuf.readerIndex(end);
 			}
-		});
+		}));
+		CustomPayloadPacketRegistry.CLIENT.register(MODULE_DELTA, ((packetContext, packetByteBuf) -> {
+			if (packetContext.getPlayer() == null || packetContext.getPlayer().getEntityWorld() == null) return;
+			World world = packetContext.getPlayer().getEntityWorld();
+			BlockPos.Mutable pos = new BlockPos.Mutable();
+			int x = 0;
+			int y = 0;
+			int z = 0;
+			int count = packetByteBuf.readVarInt();
+			for (int i = 0; i < count; i++) {
+				x += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				y += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				z += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				BlockEntity be = world.getBlockEntity(pos.set(x, y, z));
+				int header = packetByteBuf.readVarInt();
+				if (be instanceof IRComponentBlockEntity) OscillatingModules.setOscillating(be, (header & 1) != 0);
+				int changed = header >>> 1;
+				for (int id = 0; changed >> id != 0; id++) {
+					if ((changed & (1 << id)) == 0) continue;
+					//Always read the value, even if the module's gone, so the next record still lines up
+					int value = packetByteBuf.readVarInt();
+					if (be instanceof IRComponentBlockEntity) ((IRComponentBlockEntity) be).readSyncField(id, value);
+				}
+			}
+		}));
+		registerWirePackets();
 	}
 
-	@Environment(EnvType.SERVER)
-	public static void syncModule(IRComponentBlockEntity module, ServerPlayerEntity player) {
-		PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-		buf.writeBlockPos(module.getPos());
-		buf.writeCompoundTag(module.toTag(new CompoundTag()));
-		player.networkHandler.sendPacket(new CustomPayloadClientPacket(MODULE_SYNC, buf));
+	private static void registerWirePackets() {
+		CustomPayloadPacketRegistry.CLIENT.register(WIRE_NETWORK, ((packetContext, packetByteBuf) -> {
+			if (packetContext.getPlayer() == null || packetContext.getPlayer().getEntityWorld() == null) return;
+			int id = packetByteBuf.readVarInt();
+			int value = packetByteBuf.readVarInt();
+			int count = packetByteBuf.readVarInt();
+			List<BlockPos> wires = new ArrayList<>(count);
+			int x = 0;
+			int y = 0;
+			int z = 0;
+			for (int i = 0; i < count; i++) {
+				x += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				y += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				z += ModuleSyncQueue.unzigzag(packetByteBuf.readVarInt());
+				wires.add(new BlockPos(x, y, z));
+			}
+			ClientWireNetworks.get(packetContext.getPlayer().getEntityWorld()).define(id, value, wires);
+		}));
+		CustomPayloadPacketRegistry.CLIENT.register(WIRE_VALUES, ((packetContext, packetByteBuf) -> {
+			if (packetContext.getPlayer() == null || packetContext.getPlayer().getEntityWorld() == null) return;
+			ClientWireNetworks networks = ClientWireNetworks.get(packetContext.getPlayer().getEntityWorld());
+			int count = packetByteBuf.readVarInt();
+			for (int i = 0; i < count; i++) {
+				networks.setValue(packetByteBuf.readVarInt(), packetByteBuf.readVarInt());
+			}
+		}));
+		CustomPayloadPacketRegistry.CLIENT.register(WIRE_REMOVE, ((packetContext, packetByteBuf) -> {
+			if (packetContext.getPlayer() == null || packetContext.getPlayer().getEntityWorld() == null) return;
+			ClientWireNetworks networks = ClientWireNetworks.get(packetContext.getPlayer().getEntityWorld());
+			int count = packetByteBuf.readVarInt();
+			for (int i = 0; i < count; i++) {
+				networks.remove(packetByteBuf.readVarInt());
+			}
+		}));
 	}
-	@Environment(EnvType.CLIENT)
-	public static void requestModule(IRComponentBlockEntity module) {
-		PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-		buf.writeBlockPos(module.getPos());
-		MinecraftClient.getInstance().getNetworkHandler().getClientConnection().sendPacket(new CustomPayloadServerPacket(MODULE_REQUEST, buf));
+
+	/**
+	 * Sends one module's full state to a player right away. Server only. Modules are normally synced in batches by
+	 * {@link ModuleSyncQueue}; this is for anything that needs a single module resent outside of that.
+	 */
+	public static void syncModule(IRComponentBlockEntity module, ServerPlayerEntity player) {
+		ModuleCodec codec = CODECS.get(module.getType());
+		if (codec != null) {
+			ModuleSyncQueue.StateBatch batch = new ModuleSyncQueue.StateBatch();
+			batch.write(module, codec, module.getSyncState().oscillating);
+			player.networkHandler.sendPacket(new CustomPayloadClientPacket(MODULE_STATE, batch.finish()));
+		} else {
+			//Modules from other mods might not have one, so fall back to sending everything
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			buf.writeBlockPos(module.getPos());
+			buf.writeCompoundTag(module.toTag(new CompoundTag()));
+			player.networkHandler.sendPacket(new CustomPayloadClientPacket(MODULE_SYNC, buf));
+		}
 	}
 }
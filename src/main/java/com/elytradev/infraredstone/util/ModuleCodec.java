@@ -0,0 +1,48 @@
+package com.elytradev.infraredstone.util;
+
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import net.minecraft.util.PacketByteBuf;
+
+/**
+ * Writes a module's client-visible state in a compact binary form, and reads it back on the client. Registered per
+ * block entity type with {@link InfraRedstoneNetworking#registerCodec}; types without one are sent their sync fields
+ * one varint at a time instead, or NBT when a single module is resent.
+ */
+public interface ModuleCodec {
+	/**
+	 * Packs a module's sync fields by the widths from {@link IRComponentBlockEntity#getSyncFieldBits()}: every field
+	 * with a width goes into one varlong, from {@link IRComponentBlockEntity#packSyncFields()}, and every field without
+	 * one follows as its own varint. A gate's signal and modes usually fit in a byte or three.
+	 */
+	ModuleCodec FIELDS = new ModuleCodec() {
+		@Override
+		public void write(IRComponentBlockEntity module, PacketByteBuf buf) {
+			int[] bits = module.getSyncFieldBits();
+			buf.writeVarLong(module.packSyncFields());
+			for (int id = 0; id < bits.length; id++) {
+				if (bits[id] == 0) buf.writeVarInt(module.getSyncField(id));
+			}
+		}
+
+		@Override
+		public void read(IRComponentBlockEntity module, PacketByteBuf buf) {
+			int[] bits = module.getSyncFieldBits();
+			long packed = buf.readVarLong();
+			for (int id = 0; id < bits.length; id++) {
+				if (bits[id] == 0) continue;
+				module.readSyncField(id, (int) (packed & ((1L << bits[id]) - 1)));
+				packed >>>= bits[id];
+			}
+			for (int id = 0; id < bits.length; id++) {
+				if (bits[id] == 0) module.readSyncField(id, buf.readVarInt());
+			}
+		}
+	};
+
+	void write(IRComponentBlockEntity module, PacketByteBuf buf);
+
+	/**
+	 * Client only. Has to read exactly what {@link #write} wrote.
+	 */
+	void read(IRComponentBlockEntity module, PacketByteBuf buf);
+}
@@ -0,0 +1,241 @@
+package com.elytradev.infraredstone.util;
+
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+import com.elytradev.infraredstone.logic.engine.IREngine;
+import io.netty.buffer.Unpooled;
+import net.minecraft.client.network.packet.CustomPayloadClientPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Collects the modules in a server world that changed during a tick, and sends each watching player one
+ * {@link InfraRedstoneNetworking#MODULE_DELTA} packet at the end of it, holding only the sync fields that changed.
+ * <p>
+ * A module syncs at most {@link InfraRedstoneConfig#moduleSyncRate} times a second. If it changes again sooner, it waits
+ * until it may, and then sends whatever state it has by then. A module that keeps doing that is flagged as oscillating,
+ * so clients animate it instead; it's checked once more after it's allowed to sync again, which clears the flag and
+ * sends its final state once it has stopped. Players only get sent modules within {@link ChunkWatchers}' radius, and
+ * get sent every module in a chunk at once when they come within range of it, as one
+ * {@link InfraRedstoneNetworking#MODULE_STATE} packet written by the modules' {@link ModuleCodec}s.
+ * <p>
+ * Packet layout: a varint count of modules, then for each module its position as three zigzag varint offsets from the
+ * previous module's (the first one is offset from the origin), a varint holding the mask of the fields that follow
+ * shifted left by one, over the oscillating flag, and each of those fields as a varint, lowest field id first.
+ */
+public class ModuleSyncQueue {
+	private static final PerWorld<ModuleSyncQueue> QUEUES = PerWorld.create("Modules are only synced from the server", ModuleSyncQueue::new);
+
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (ModuleSyncQueue queue : QUEUES.values()) {
+			queue.flush();
+		}
+	};
+
+	private final World world;
+	private final Set<IRComponentBlockEntity> queued = new LinkedHashSet<>();
+	/** Modules that hit the rate limit, waiting to be allowed to sync. */
+	private final Set<IRComponentBlockEntity> deferred = new LinkedHashSet<>();
+	/** Modules clients think are oscillating, to check back on. */
+	private final Set<IRComponentBlockEntity> oscillating = new LinkedHashSet<>();
+
+	private ModuleSyncQueue(World world) {
+		this.world = world;
+	}
+
+	public static ModuleSyncQueue get(World world) {
+		return QUEUES.get(world);
+	}
+
+	/**
+	 * Sends the module's changed fields to everyone watching it at the end of this tick. Queueing it again before then
+	 * costs nothing.
+	 */
+	public void add(IRComponentBlockEntity module) {
+		queued.add(module);
+	}
+
+	private void flush() {
+		ChunkWatchers index = ChunkWatchers.get(world);
+		Map<ServerPlayerEntity, Batch> batches = new HashMap<>();
+		Map<ServerPlayerEntity, StateBatch> states = new HashMap<>();
+
+		//Players who just came within range get everything they missed in one go. Chunks entering view distance come
+		//with their modules' current state already, so when the radius isn't closer, that's only needed for modules
+		//whose state is ahead of what everyone else was sent, or that clients should be animating
+		boolean clipped = index.isClipped();
+		for (ChunkWatchers.Entered entered : index.getEntered()) {
+			for (IRComponentBlockEntity module : IREngine.get(world).getModules(entered.chunkX, entered.chunkZ)) {
+				if (module.isInvalid()) continue;
+				boolean pending = queued.contains(module) || deferred.contains(module) || oscillating.contains(module);
+				if (!clipped && !pending) continue;
+				//The player now has state the snapshot doesn't, so a change back to the snapshot must still get sent
+				if (pending) module.getSyncState().resetSnapshot();
+				ModuleCodec codec = InfraRedstoneNetworking.getCodec(module.getType());
+				if (codec != null) {
+					states.computeIfAbsent(entered.player, key -> new StateBatch()).write(module, codec, module.getSyncState().oscillating);
+				} else if (module.getSyncFieldCount() > 0) {
+					int all = (1 << module.getSyncFieldCount()) - 1;
+					batches.computeIfAbsent(entered.player, key -> new Batch()).write(module, all, module.getSyncState().oscillating);
+				}
+			}
+		}
+
+		if (!queued.isEmpty() || !deferred.isEmpty() || !oscillating.isEmpty()) collect(index, batches);
+
+		//Full states first, so any changes later this tick land on top of them
+		for (Map.Entry<ServerPlayerEntity, StateBatch> entry : states.entrySet()) {
+			entry.getKey().networkHandler.sendPacket(new CustomPayloadClientPacket(InfraRedstoneNetworking.MODULE_STATE, entry.getValue().finish()));
+		}
+		for (Map.Entry<ServerPlayerEntity, Batch> entry : batches.entrySet()) {
+			entry.getKey().networkHandler.sendPacket(new CustomPayloadClientPacket(InfraRedstoneNetworking.MODULE_DELTA, entry.getValue().finish()));
+		}
+	}
+
+	/**
+	 * Writes every module that's due to sync into the batches of the players watching it.
+	 */
+	private void collect(ChunkWatchers index, Map<ServerPlayerEntity, Batch> batches) {
+		long time = world.getTime();
+		int interval = getSyncInterval();
+
+		//Work out which modules may sync this tick
+		Set<IRComponentBlockEntity> due = new LinkedHashSet<>();
+		deferred.addAll(queued);
+		queued.clear();
+		for (Iterator<IRComponentBlockEntity> it = deferred.iterator(); it.hasNext(); ) {
+			IRComponentBlockEntity module = it.next();
+			if (module.isInvalid() || module.getWorld() != world) {
+				it.remove();
+				oscillating.remove(module);
+				continue;
+			}
+			ModuleSyncState state = module.getSyncState();
+			if (time < state.lastSent + interval) {
+				state.throttled = true;
+				continue;
+			}
+			it.remove();
+			due.add(module);
+		}
+		for (Iterator<IRComponentBlockEntity> it = oscillating.iterator(); it.hasNext(); ) {
+			IRComponentBlockEntity module = it.next();
+			if (module.isInvalid() || module.getWorld() != world) {
+				it.remove();
+			} else if (time >= module.getSyncState().lastSent + interval && !deferred.contains(module)) {
+				due.add(module);
+			}
+		}
+
+		//Group by chunk, so each chunk's watchers are only looked up once
+		Map<ChunkPos, List<IRComponentBlockEntity>> byChunk = new LinkedHashMap<>();
+		for (IRComponentBlockEntity module : due) {
+			byChunk.computeIfAbsent(new ChunkPos(module.getPos()), key -> new ArrayList<>()).add(module);
+		}
+
+		for (Map.Entry<ChunkPos, List<IRComponentBlockEntity>> entry : byChunk.entrySet()) {
+			List<ServerPlayerEntity> watchers = index.getWatchers(entry.getKey().x, entry.getKey().z);
+			for (IRComponentBlockEntity module : entry.getValue()) {
+				ModuleSyncState state = module.getSyncState();
+				//Take the snapshot even if nobody's watching, so the next watcher doesn't get sent stale changes
+				int changed = state.updateSnapshot(module);
+				state.throttleStreak = state.throttled ? state.throttleStreak + 1 : 0;
+				state.throttled = false;
+				//One throttled window could be a coincidence; two in a row means it's not settling down
+				boolean isOscillating = state.throttleStreak >= 2;
+				if (changed == 0 && isOscillating == state.oscillating) continue;
+
+				state.lastSent = time;
+				state.oscillating = isOscillating;
+				if (isOscillating) oscillating.add(module);
+				else oscillating.remove(module);
+				for (ServerPlayerEntity player : watchers) {
+					batches.computeIfAbsent(player, key -> new Batch()).write(module, changed, isOscillating);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the fewest ticks allowed between two syncs of the same module.
+	 */
+	private static int getSyncInterval() {
+		int rate = InfraRedstoneConfig.INSTANCE.moduleSyncRate;
+		return (rate <= 0) ? 0 : Math.max(1, Math.round(20f / rate));
+	}
+
+	/** A count of records, each starting with its module's position as an offset from the previous one's. */
+	private static abstract class Records {
+		protected final PacketByteBuf records = new PacketByteBuf(Unpooled.buffer());
+		private int count;
+		private int lastX;
+		private int lastY;
+		private int lastZ;
+
+		protected void writePos(BlockPos pos) {
+			records.writeVarInt(zigzag(pos.getX() - lastX));
+			records.writeVarInt(zigzag(pos.getY() - lastY));
+			records.writeVarInt(zigzag(pos.getZ() - lastZ));
+			lastX = pos.getX();
+			lastY = pos.getY();
+			lastZ = pos.getZ();
+			count++;
+		}
+
+		PacketByteBuf finish() {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			buf.writeVarInt(count);
+			buf.writeBytes(records);
+			return buf;
+		}
+	}
+
+	private static class Batch extends Records {
+		void write(IRComponentBlockEntity module, int changed, boolean oscillating) {
+			writePos(module.getPos());
+			records.writeVarInt(changed << 1 | (oscillating ? 1 : 0));
+			for (int id = 0; changed >> id != 0; id++) {
+				if ((changed & (1 << id)) != 0) records.writeVarInt(module.getSyncField(id));
+			}
+		}
+	}
+
+	/**
+	 * Full module states. After each position comes the oscillating flag as a boolean, then the length of the codec's
+	 * record as a varint, so clients can skip modules they can't read.
+	 */
+	static class StateBatch extends Records {
+		private final PacketByteBuf scratch = new PacketByteBuf(Unpooled.buffer());
+
+		void write(IRComponentBlockEntity module, ModuleCodec codec, boolean oscillating) {
+			writePos(module.getPos());
+			records.writeBoolean(oscillating);
+			scratch.clear();
+			codec.write(module, scratch);
+			records.writeVarInt(scratch.readableBytes());
+			records.writeBytes(scratch);
+		}
+	}
+
+	/** Maps small negative numbers to small positive ones, so offsets in either direction stay one varint byte. */
+	public static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,45 @@
+package com.elytradev.infraredstone.util;
+
+import com.elytradev.infraredstone.block.entity.IRComponentBlockEntity;
+
+/**
+ * What {@link ModuleSyncQueue} last told clients about one module, and when. Server only.
+ */
+public class ModuleSyncState {
+	/** The sync fields as last sent, or null if they never have been. */
+	private int[] fields;
+	/** The world time of the last send. */
+	long lastSent = Long.MIN_VALUE;
+	/** Whether the module changed again before it was allowed to sync. */
+	boolean throttled;
+	/** How many sends in a row followed a throttled window. */
+	int throttleStreak;
+	/** Whether clients were last told the module is oscillating. */
+	boolean oscillating;
+
+	/**
+	 * Records the module's current sync fields as sent.
+	 * @return a mask of the fields that changed since the last time, or of every field the first time.
+	 */
+	int updateSnapshot(IRComponentBlockEntity module) {
+		int count = module.getSyncFieldCount();
+		int changed = 0;
+		if (fields == null) {
+			fields = new int[count];
+			changed = (int) ((1L << count) - 1);
+		}
+		for (int id = 0; id < count; id++) {
+			int value = module.getSyncField(id);
+			if (value != fields[id]) {
+				fields[id] = value;
+				changed |= 1 << id;
+			}
+		}
+		return changed;
+	}
+
+	/** Forgets the last-sent fields, so the next sync sends every field again. */
+	void resetSnapshot() {
+		fields = null;
+	}
+}
@@ -0,0 +1,106 @@
+package com.elytradev.infraredstone.util;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds one object per server world, and drops it once its world is unloaded, so nothing keeps an old world, or the
+ * whole server it belonged to, alive. Every per-world singleton is kept in one of these.
+ * <p>
+ * A world counts as unloaded once its server has stopped, or the server no longer has it for its dimension.
+ */
+public class PerWorld<T> {
+	private static final List<PerWorld<?>> HOLDERS = new ArrayList<>();
+	private static final List<Consumer<MinecraftServer>> STOP_LISTENERS = new ArrayList<>();
+
+	/** Drops whatever belongs to unloaded worlds. Registered ahead of everything that ticks the held objects. */
+	public static Consumer<MinecraftServer> onServerTick = server -> {
+		for (PerWorld<?> holder : HOLDERS) {
+			holder.prune(server, false);
+		}
+	};
+
+	private final String clientMessage;
+	private final Function<World, T> factory;
+	private final Map<World, T> values = new LinkedHashMap<>();
+
+	private PerWorld(String clientMessage, Function<World, T> factory) {
+		this.clientMessage = clientMessage;
+		this.factory = factory;
+	}
+
+	/**
+	 * @param clientMessage the message to reject client worlds with.
+	 * @param factory makes the object for a world the first time it's asked for.
+	 */
+	public static <T> PerWorld<T> create(String clientMessage, Function<World, T> factory) {
+		PerWorld<T> holder = new PerWorld<>(clientMessage, factory);
+		HOLDERS.add(holder);
+		return holder;
+	}
+
+	/**
+	 * Runs something whenever a server shuts down, for anything else kept per server, such as thread pools.
+	 */
+	public static void addStopListener(Consumer<MinecraftServer> listener) {
+		STOP_LISTENERS.add(listener);
+	}
+
+	/** Drops everything belonging to a server that's shutting down. */
+	public static void onServerStopped(MinecraftServer server) {
+		for (PerWorld<?> holder : HOLDERS) {
+			holder.prune(server, true);
+		}
+		for (Consumer<MinecraftServer> listener : STOP_LISTENERS) {
+			listener.accept(server);
+		}
+	}
+
+	public T get(World world) {
+		if (world.isClient) throw new IllegalArgumentException(clientMessage);
+		T value = values.get(world);
+		if (value == null) {
+			//Not computeIfAbsent; factories are free to look up other worlds' objects
+			value = factory.apply(world);
+			values.put(world, value);
+		}
+		return value;
+	}
+
+	/** @return the object for the indicated world, or null if nothing has asked for it yet. */
+	public T getIfPresent(World world) {
+		return values.get(world);
+	}
+
+	/** @return every object held, for worlds that are still loaded as of this tick. */
+	public Collection<T> values() {
+		return values.values();
+	}
+
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	private void prune(MinecraftServer server, boolean stopping) {
+		if (values.isEmpty()) return;
+		Iterator<World> iter = values.keySet().iterator();
+		while (iter.hasNext()) {
+			ServerWorld world = (ServerWorld) iter.next();
+			if (world.getServer() != server) {
+				iter.remove();
+			} else if (stopping || server.getWorld(world.dimension.getType()) != world) {
+				iter.remove();
+			}
+		}
+	}
+}
@@ -5,6 +5,8 @@ import net.minecraft.util.StringRepresentable;
 public enum InactiveSelection implements StringRepresentable {
 	NONE("none"), LEFT("left"), BACK("back"), RIGHT("right");
 
+	private static final InactiveSelection[] VALUES = values();
+
 	private final String name;
 
 	InactiveSelection(String name) {
@@ -20,6 +22,14 @@ public enum InactiveSelection implements StringRepresentable {
 		return InactiveSelection.NONE;
 	}
 
+	/**
+	 * @return the value with the indicated ordinal, or {@link #NONE} if there isn't one, like for a value synced by a
+	 * different version.
+	 */
+	public static InactiveSelection fromOrdinal(int ordinal) {
+		return (ordinal >= 0 && ordinal < VALUES.length) ? VALUES[ordinal] : InactiveSelection.NONE;
+	}
+
 	@Override
 	public String asString() {
 		return name;
@@ -5,6 +5,8 @@ import net.minecraft.util.StringRepresentable;
 public enum ShifterSelection implements StringRepresentable {
 	LEFT("left"), RIGHT("right");
 
+	private static final ShifterSelection[] VALUES = values();
+
 	private final String name;
 
 	ShifterSelection(String name) {
@@ -20,6 +22,14 @@ public enum ShifterSelection implements StringRepresentable {
 		return ShifterSelection.LEFT;
 	}
 
+	/**
+	 * @return the value with the indicated ordinal, or {@link #LEFT} if there isn't one, like for a value synced by a
+	 * different version.
+	 */
+	public static ShifterSelection fromOrdinal(int ordinal) {
+		return (ordinal >= 0 && ordinal < VALUES.length) ? VALUES[ordinal] : ShifterSelection.LEFT;
+	}
+
 	@Override
 	public String asString() {
 		return name;